@@ -0,0 +1,46 @@
+package com.example.app.benchmark;
+
+import java.util.Random;
+
+// Deterministic pseudo-prose for the benchmarks, so runs are comparable
+final class BenchmarkTexts {
+    private static final String[] ENGLISH = (
+            "the of and to in is was that it for as with his on be at by had not are but from or have "
+            + "an they which one you were her all she there would their we him been has when who will "
+            + "more no if out so said what up its about into than them can only other new some could time "
+            + "these two may then do first any my now such like our over man me even most made after also "
+            + "quick brown fox jumps lazy dog river bank morning evening letter garden window").split(" ");
+    private static final String[] RUSSIAN = (
+            "и в не на я быть он с что а по это она этот к но они мы как из у который то за свой весь год "
+            + "от так о для ты же все тот мочь вы человек такой его сказать только или еще бы себя один "
+            + "как уже до время если сам когда другой вот говорить наш мой знать стать при чтобы дело жизнь "
+            + "утро вечер река берег письмо сад окно ёлка съезд объявление").split(" ");
+
+    private BenchmarkTexts() {
+    }
+
+    // language is "english", "russian" or "mixed" (alternating sentences); size in chars
+    static String generate(String language, int size) {
+        Random random = new Random(42);
+        StringBuilder sb = new StringBuilder(size + 64);
+        int sentence = 0;
+        while (sb.length() < size) {
+            String[] words = language.equals("english") || language.equals("mixed") && sentence % 2 == 0
+                    ? ENGLISH : RUSSIAN;
+            int length = 6 + random.nextInt(10);
+            for (int i = 0; i < length; i++) {
+                String word = words[random.nextInt(words.length)];
+                if (i == 0) {
+                    word = Character.toUpperCase(word.charAt(0)) + word.substring(1);
+                }
+                sb.append(word).append(i == length - 1 ? ". " : random.nextInt(8) == 0 ? ", " : " ");
+            }
+            if (random.nextInt(5) == 0) {
+                sb.append('\n');
+            }
+            sentence++;
+        }
+        sb.setLength(size);
+        return sb.toString();
+    }
+}
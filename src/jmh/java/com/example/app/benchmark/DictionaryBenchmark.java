@@ -0,0 +1,45 @@
+package com.example.app.benchmark;
+
+import com.example.app.cipher.CaesarCipher;
+import com.example.app.cipher.ShiftCandidate;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-call latency of cracking tweet-sized ciphertexts, by dictionary words
+ * and by letter frequencies for comparison. The word lists are loaded in setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DictionaryBenchmark {
+    @Param({"english", "russian"})
+    public String language;
+
+    @Param({"64", "280"})
+    public int size;
+
+    private final CaesarCipher cipher = new CaesarCipher();
+    private String ciphertext;
+
+    @Setup
+    public void setUp() {
+        ciphertext = cipher.encrypt(BenchmarkTexts.generate(language, size), 7);
+        cipher.crackWithDictionary(ciphertext);
+    }
+
+    @Benchmark
+    public ShiftCandidate crackWithDictionary() {
+        return cipher.crackWithDictionary(ciphertext);
+    }
+
+    @Benchmark
+    public List<ShiftCandidate> crackWithFrequencies() {
+        return cipher.crack(ciphertext, 1);
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.app.benchmark;
+
+import com.example.app.calculator.ArithmeticEvaluator;
+import com.example.app.calculator.CompiledExpression;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parse-and-evaluate against compiled evaluation, for a flat expression and a
+ * deeply nested one. The nested shape is 200 levels of parentheses.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class EvaluatorBenchmark {
+    @Param({"shallow", "nested"})
+    public String shape;
+
+    private final ArithmeticEvaluator evaluator = new ArithmeticEvaluator();
+    private final ArithmeticEvaluator cachingEvaluator = new ArithmeticEvaluator(1024);
+    private String expression;
+    private CompiledExpression compiled;
+    private CompiledExpression compiledWithVariables;
+    private final double[] values = {1.5, -2.25};
+
+    @Setup
+    public void setUp() {
+        if (shape.equals("shallow")) {
+            expression = "12.5 * 3 + 7 / 2 - 4.25 * (2 + 1)";
+        } else {
+            StringBuilder sb = new StringBuilder();
+            for (int i = 0; i < 200; i++) {
+                sb.append("(").append(i % 9 + 1).append(i % 3 == 0 ? " + " : i % 3 == 1 ? " * " : " - ");
+            }
+            sb.append("1");
+            for (int i = 0; i < 200; i++) {
+                sb.append(i % 2 == 0 ? " / 1.5)" : ")");
+            }
+            expression = sb.toString();
+        }
+        compiled = evaluator.compile(expression);
+        compiledWithVariables = evaluator.compile("(x + 3) * y - x / (y - 1)", "x", "y");
+    }
+
+    @Benchmark
+    public double evaluate() {
+        return evaluator.evaluate(expression);
+    }
+
+    @Benchmark
+    public double evaluateCached() {
+        return cachingEvaluator.evaluate(expression);
+    }
+
+    @Benchmark
+    public CompiledExpression compile() {
+        return evaluator.compile(expression);
+    }
+
+    @Benchmark
+    public double compiledEvaluate() {
+        return compiled.evaluate();
+    }
+
+    @Benchmark
+    public double compiledWithVariables() {
+        return compiledWithVariables.evaluate(values);
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.app.benchmark;
+
+import com.example.app.calculator.ArithmeticEvaluator;
+import com.example.app.cipher.CaesarCipher;
+import com.example.app.metrics.Metrics;
+import com.example.app.metrics.OperationMetrics;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of the operation metrics: the cheapest instrumented calls with recording
+ * on and with -Dapp.metrics=false, and recording alone from four threads at once.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MetricsBenchmark {
+    private final CaesarCipher cipher = new CaesarCipher();
+    private final ArithmeticEvaluator evaluator = new ArithmeticEvaluator();
+    private final OperationMetrics metrics = Metrics.operation("benchmark.record");
+    private final String text = BenchmarkTexts.generate("english", 64);
+
+    @Benchmark
+    public String encrypt() {
+        return cipher.encrypt(text, 7);
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Dapp.metrics=false")
+    public String encryptWithoutMetrics() {
+        return cipher.encrypt(text, 7);
+    }
+
+    @Benchmark
+    public double evaluate() {
+        return evaluator.evaluate("(1.5 + 2) * 3 - 4 / 8");
+    }
+
+    @Benchmark
+    @Fork(value = 1, jvmArgsAppend = "-Dapp.metrics=false")
+    public double evaluateWithoutMetrics() {
+        return evaluator.evaluate("(1.5 + 2) * 3 - 4 / 8");
+    }
+
+    @Benchmark
+    @Threads(4)
+    public void recordContended() {
+        metrics.success(metrics.start(), 64);
+    }
+}
@@ -2,8 +2,12 @@ package com.example.app;
 
 import com.example.app.cipher.CaesarCipher;
 import com.example.app.calculator.ArithmeticEvaluator;
+import com.example.app.cli.CommandLine;
+import com.example.app.metrics.Metrics;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Scanner;
 
 import static com.example.app.util.MenuChoiceHandler.*;
@@ -14,11 +18,16 @@ public class App {
     private static final ArithmeticEvaluator evaluator = new ArithmeticEvaluator();
 
     public static void main(String[] args) {
+        // with arguments, run one headless command and exit with its status
+        if (args.length > 0) {
+            System.exit(new CommandLine(cipher, evaluator).run(args, System.in, System.out, System.err));
+        }
+        Metrics.registerMBeans();
         displayWelcomeMessage();
 
         while (true) {
             displayMenu();
-            int choice = getNumChoice(scanner, 4);
+            int choice = getNumChoice(scanner, 5);
             try {
                 processChoice(choice);
             } catch (Exception e) {
@@ -43,7 +52,8 @@ public class App {
         System.out.println("1. Caesar Cipher Encryption");
         System.out.println("2. Caesar Cipher Decryption");
         System.out.println("3. Arithmetic Expression Evaluation");
-        System.out.println("4. Exit");
+        System.out.println("4. Operation Metrics");
+        System.out.println("5. Exit");
     }
 
     private static void processChoice(int choice) throws IOException {
@@ -58,6 +68,10 @@ public class App {
                 handleArithmeticEvaluation();
                 break;
             case 4:
+                System.out.println("\n=== Operation Metrics ===");
+                Metrics.dump(System.out);
+                break;
+            case 5:
                 System.exit(0);
                 break;
         }
@@ -77,10 +91,11 @@ public class App {
             text = scanner.nextLine();
         } else {
             System.out.print("Enter file path: ");
-            String filePath = scanner.nextLine();
-            String encryptedText = cipher.encryptFromFile(filePath, getShiftValue());
-            System.out.println("File content loaded successfully.");
-            System.out.println("Result: " + encryptedText);
+            Path inputPath = Paths.get(scanner.nextLine().trim());
+            System.out.print("Enter output file path: ");
+            Path outputPath = Paths.get(scanner.nextLine().trim());
+            cipher.encryptFile(inputPath, outputPath, getShiftValue());
+            System.out.println("Result written to " + outputPath);
             return;
         }
 
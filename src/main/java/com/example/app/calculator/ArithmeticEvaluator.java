@@ -1,15 +1,49 @@
 package com.example.app.calculator;
 
 import com.example.app.exception.CalculatorException;
-import java.util.*;
+import com.example.app.metrics.Metrics;
+import com.example.app.metrics.OperationMetrics;
+
+import java.math.MathContext;
 
 public class ArithmeticEvaluator {
-    public double evaluate(String expression) {
-        if (expression == null || expression.trim().isEmpty()) {
+    private static final OperationMetrics EVALUATE_METRICS = Metrics.operation("calculator.evaluate");
+
+    private final ExpressionCache cache;
+
+    public ArithmeticEvaluator() {
+        this.cache = null;
+    }
+
+    // Keeps up to cacheCapacity compiled expressions, so repeated calls with the
+    // same text skip parsing. Safe to share between threads.
+    public ArithmeticEvaluator(int cacheCapacity) {
+        this.cache = new ExpressionCache(cacheCapacity);
+    }
+
+    // Accepts any CharSequence, e.g. a slice of a larger buffer, without copying it.
+    // Without a cache the expression is parsed and run in place and nothing is allocated.
+    public double evaluate(CharSequence expression) {
+        long start = EVALUATE_METRICS.start();
+        try {
+            double result = evaluateUnmetered(expression);
+            EVALUATE_METRICS.success(start, expression.length());
+            return result;
+        } catch (RuntimeException e) {
+            EVALUATE_METRICS.failure(start, e);
+            throw e;
+        }
+    }
+
+    private double evaluateUnmetered(CharSequence expression) {
+        if (expression == null) {
             throw new CalculatorException("Expression cannot be empty");
         }
+        if (cache != null) {
+            return compile(expression).evaluate();
+        }
         try {
-            return new ExpressionParser(expression.trim()).parse();
+            return ExpressionParser.forCurrentThread().evaluate(expression);
         } catch (CalculatorException e) {
             throw e;
         } catch (Exception e) {
@@ -17,150 +51,64 @@ public class ArithmeticEvaluator {
         }
     }
 
-    private static class ExpressionParser {
-        private final String expression;
-        private int position;
-
-        public ExpressionParser(String expression) {
-            this.expression = expression;
-            this.position = 0;
-        }
-
-        public double parse() {
-            // recursively parses the expression. Stops upon encountering an unfamiliar char
-            double result = parseExpression();
-
-            // this catches unacceptable chars after the check for '(', '+', '-', '*', '/')
-            if (position < expression.length()) {
-                throw new CalculatorException("Unexpected character: " + expression.charAt(position));
-            }
-            return result;
+    /**
+     * Parses the expression once into a form that can be evaluated any number
+     * of times, from any thread, without parsing it again.
+     * If variables are given, they fix the slot order and no other names are allowed.
+     */
+    public CompiledExpression compile(CharSequence expression, String... variables) {
+        if (expression == null) {
+            throw new CalculatorException("Expression cannot be empty");
         }
-
-        private double parseExpression() {
-            // expression always starts with a number.
-            // If it does not, break down the brackets and modifiers (+,-) with recursion,
-            // until it does
-            double result = parseTerm();
-
-            // the idea is to break the expression into bracketed segments, which are
-            // then broken into numbers with accompanying modifiers (+,-) and operators (*,/,+,-)
-            while (position < expression.length()) {
-                skipWhitespace();
-                char operator = peekChar();
-                if (operator != '+' && operator != '-') {
-                    break;
-                }
-                position++;
-                double term = parseTerm();
-                if (operator == '+') {
-                    result += term;
-                } else {
-                    result -= term;
-                }
+        // declared variables change the slot layout, so only plain compiles are cached
+        if (cache != null && variables.length == 0) {
+            String key = expression.toString().trim();
+            if (key.isEmpty()) {
+                throw new CalculatorException("Expression cannot be empty");
             }
-
-            return result;
+            return cache.get(key, this::parse);
         }
+        return parse(expression, variables);
+    }
 
-        private double parseTerm() {
-            // expression always starts with a number.
-            // If it does not, break down the brackets and modifiers (+,-) with recursion,
-            // until it does
-            double result = parseFactor();
-
-            while (position < expression.length()) {
-                skipWhitespace();
-                char operator = peekChar();
-                if (operator != '*' && operator != '/') {
-                    break;
-                }
-                position++;
-                double factor = parseFactor();
-                if (operator == '*') {
-                    result *= factor;
-                } else {
-                    if (factor == 0) {
-                        throw new CalculatorException("Division by zero");
-                    }
-                    result /= factor;
-                }
-            }
-
-            return result;
+    /**
+     * Compiles the expression for exact decimal arithmetic instead of double.
+     * Division rounds to mathContext; with MathContext.UNLIMITED a division
+     * without a finite decimal result throws CalculatorException.
+     */
+    public ExactExpression compileExact(CharSequence expression, MathContext mathContext, String... variables) {
+        if (expression == null) {
+            throw new CalculatorException("Expression cannot be empty");
         }
-
-        private double parseFactor() {
-            skipWhitespace();
-            char ch = peekChar();
-
-            // this breaks the expression into brackets, recourses to the beginning parseExpression
-            if (ch == '(') {
-                position++;
-                double result = parseExpression();
-                skipWhitespace();
-                if (position >= expression.length() || expression.charAt(position) != ')') {
-                    throw new CalculatorException("Missing closing parenthesis");
-                }
-                position++;
-                return result;
-            }
-
-            // the following two ifs consume modifiers (+,-) using recursive number search
-            if (ch == '-') {
-                position++;
-                return -parseFactor();
-            }
-
-            if (ch == '+') {
-                position++;
-                return parseFactor();
-            }
-
-            return parseNumber();
+        try {
+            return ExpressionParser.forCurrentThread().compileExact(expression, mathContext, variables);
+        } catch (CalculatorException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CalculatorException("Invalid expression: " + e.getMessage());
         }
+    }
 
-        private double parseNumber() {
-            skipWhitespace();
-            int startPos = position;
-            boolean hasDecimal = false;
-
-            // Handle digits before decimal
-            while (position < expression.length() && 
-                   (Character.isDigit(expression.charAt(position)) || 
-                    expression.charAt(position) == '.')) {
-                if (expression.charAt(position) == '.') {
-                    if (hasDecimal) {
-                        throw new CalculatorException("Invalid number format: multiple decimal points");
-                    }
-                    hasDecimal = true;
-                }
-                position++;
-            }
-
-            if (startPos == position) {
-                throw new CalculatorException("Expected number at position " + position);
-            }
-
-            try {
-                return Double.parseDouble(expression.substring(startPos, position));
-            } catch (NumberFormatException e) {
-                throw new CalculatorException("Invalid number format");
-            }
-        }
+    // null when the evaluator was created without a cache
+    public CacheStats cacheStats() {
+        return cache == null ? null : cache.stats();
+    }
 
-        private void skipWhitespace() {
-            while (position < expression.length() &&
-                   Character.isWhitespace(expression.charAt(position))) {
-                position++;
-            }
+    private CompiledExpression parse(CharSequence expression, String... variables) {
+        try {
+            return ExpressionOptimizer.optimize(ExpressionParser.forCurrentThread().compile(expression, variables));
+        } catch (CalculatorException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new CalculatorException("Invalid expression: " + e.getMessage());
         }
+    }
 
-        private char peekChar() {
-            if (position >= expression.length()) {
-                throw new CalculatorException("Unexpected end of expression");
-            }
-            return expression.charAt(position);
-        }
+    /**
+     * Evaluates the expression for every row of columnar data: columns[slot][row]
+     * holds the value of the variable in that slot, and out.length rows are computed.
+     */
+    public void evaluateBatch(CompiledExpression expression, double[][] columns, double[] out) {
+        ColumnEvaluator.evaluate(expression, columns, out);
     }
 }
@@ -0,0 +1,144 @@
+package com.example.app.calculator;
+
+import com.example.app.exception.CalculatorException;
+import com.example.app.util.LatencyHistogram;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Evaluates newline-delimited expressions, one per line, on a pool of workers.
+ *
+ * Lines are read in chunks and each chunk is evaluated as one task. Only a
+ * bounded number of chunks is in flight, so memory stays flat on any input
+ * size. Finished chunks are written strictly in input order. Every input line
+ * yields exactly one output line: the result, or "error: " and the message of
+ * the CalculatorException.
+ */
+public class BatchEvaluator implements AutoCloseable {
+    static final int CHUNK_LINES = 1024;
+    static final String ERROR_PREFIX = "error: ";
+
+    private final ArithmeticEvaluator evaluator;
+    private final ExecutorService workers;
+    private final int maxInFlight;
+
+    public BatchEvaluator(ArithmeticEvaluator evaluator) {
+        this(evaluator, Runtime.getRuntime().availableProcessors());
+    }
+
+    public BatchEvaluator(ArithmeticEvaluator evaluator, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be positive: " + threads);
+        }
+        this.evaluator = evaluator;
+        this.workers = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "batch-evaluator");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // enough queued work to keep every worker busy while the writer catches up
+        this.maxInFlight = threads * 4;
+    }
+
+    public BatchReport evaluate(Path input, Writer out) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(input, StandardCharsets.UTF_8)) {
+            return evaluate(reader, out);
+        }
+    }
+
+    public BatchReport evaluate(BufferedReader in, Writer out) throws IOException {
+        long start = System.nanoTime();
+        LatencyHistogram latency = new LatencyHistogram();
+        long errors = 0;
+        ArrayDeque<Future<Chunk>> pending = new ArrayDeque<>();
+        try {
+            String[] lines = new String[CHUNK_LINES];
+            int count;
+            while ((count = read(in, lines)) > 0) {
+                if (pending.size() == maxInFlight) {
+                    errors += write(pending.poll(), out, latency);
+                }
+                String[] chunk = lines;
+                int size = count;
+                pending.add(workers.submit(() -> evaluate(chunk, size)));
+                lines = new String[CHUNK_LINES];
+            }
+            while (!pending.isEmpty()) {
+                errors += write(pending.poll(), out, latency);
+            }
+            out.flush();
+        } finally {
+            for (Future<Chunk> future : pending) {
+                future.cancel(true);
+            }
+        }
+        return new BatchReport(latency.count(), errors, System.nanoTime() - start,
+                latency.mean(), latency.percentile(50), latency.percentile(99), latency.max());
+    }
+
+    @Override
+    public void close() {
+        workers.shutdownNow();
+    }
+
+    private Chunk evaluate(String[] lines, int count) {
+        Chunk chunk = new Chunk(count);
+        StringBuilder results = chunk.results;
+        for (int i = 0; i < count; i++) {
+            long lineStart = System.nanoTime();
+            try {
+                results.append(evaluator.evaluate(lines[i]));
+            } catch (CalculatorException e) {
+                results.append(ERROR_PREFIX).append(e.getMessage());
+                chunk.errors++;
+            }
+            results.append('\n');
+            chunk.latency.record(System.nanoTime() - lineStart);
+        }
+        return chunk;
+    }
+
+    private static int read(BufferedReader in, String[] lines) throws IOException {
+        int count = 0;
+        String line;
+        while (count < lines.length && (line = in.readLine()) != null) {
+            lines[count++] = line;
+        }
+        return count;
+    }
+
+    private static long write(Future<Chunk> future, Writer out, LatencyHistogram latency) throws IOException {
+        Chunk chunk;
+        try {
+            chunk = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for results", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Batch worker failed", e.getCause());
+        }
+        out.append(chunk.results);
+        latency.merge(chunk.latency);
+        return chunk.errors;
+    }
+
+    private static final class Chunk {
+        final StringBuilder results;
+        final LatencyHistogram latency = new LatencyHistogram();
+        long errors;
+
+        Chunk(int lines) {
+            this.results = new StringBuilder(lines * 24);
+        }
+    }
+}
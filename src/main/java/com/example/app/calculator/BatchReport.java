@@ -0,0 +1,17 @@
+package com.example.app.calculator;
+
+// Summary of one BatchEvaluator run; latencies are per line, in nanoseconds
+public record BatchReport(long lines, long errors, long elapsedNanos,
+                          double meanNanos, long p50Nanos, long p99Nanos, long maxNanos) {
+
+    public double linesPerSecond() {
+        return elapsedNanos == 0 ? 0 : lines * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d lines (%d errors) in %.3f s, %.0f lines/s, latency mean %.1f us, p50 %.1f us, p99 %.1f us, max %.1f us",
+                lines, errors, elapsedNanos / 1e9, linesPerSecond(),
+                meanNanos / 1e3, p50Nanos / 1e3, p99Nanos / 1e3, maxNanos / 1e3);
+    }
+}
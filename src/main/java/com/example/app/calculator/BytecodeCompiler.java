@@ -0,0 +1,275 @@
+package com.example.app.calculator;
+
+import com.example.app.exception.CalculatorException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Turns a compiled postfix program into a hidden class implementing
+ * {@link ExpressionKernel}, so HotSpot can inline and optimize the expression
+ * like handwritten Java. The class file is emitted by hand: one straight-line
+ * method with no branches, hence no stack map frames are needed.
+ */
+final class BytecodeCompiler {
+    private static final String CLASS_NAME = "com/example/app/calculator/GeneratedKernel";
+    private static final String KERNEL_NAME = ExpressionKernel.class.getName().replace('.', '/');
+    private static final String HELPER_NAME = BytecodeCompiler.class.getName().replace('.', '/');
+    // Java 17 class file, ACC_PUBLIC | ACC_FINAL | ACC_SUPER
+    private static final int CLASS_VERSION = 61;
+    private static final int CLASS_ACCESS = 0x0031;
+    private static final int ACC_PUBLIC = 0x0001;
+    // a method body cannot be larger than this
+    private static final int MAX_CODE_LENGTH = 65535;
+    // nor use more operand stack slots than this
+    private static final int MAX_STACK = 65535;
+
+    private static final int DCONST_0 = 0x0e;
+    private static final int DCONST_1 = 0x0f;
+    private static final int ICONST_0 = 0x03;
+    private static final int BIPUSH = 0x10;
+    private static final int SIPUSH = 0x11;
+    private static final int LDC2_W = 0x14;
+    private static final int ALOAD_0 = 0x2a;
+    private static final int ALOAD_1 = 0x2b;
+    private static final int DALOAD = 0x31;
+    private static final int DADD = 0x63;
+    private static final int DSUB = 0x67;
+    private static final int DMUL = 0x6b;
+    private static final int DNEG = 0x77;
+    private static final int DRETURN = 0xaf;
+    private static final int RETURN = 0xb1;
+    private static final int INVOKESPECIAL = 0xb7;
+    private static final int INVOKESTATIC = 0xb8;
+
+    private BytecodeCompiler() {
+    }
+
+    // null if the program is too large or too deep for a single method
+    static ExpressionKernel compile(CompiledExpression expression) {
+        byte[] classFile = classFile(expression);
+        if (classFile == null) {
+            return null;
+        }
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.lookup().defineHiddenClass(classFile, true);
+            return (ExpressionKernel) lookup.findConstructor(lookup.lookupClass(), MethodType.methodType(void.class))
+                    .invoke();
+        } catch (Throwable e) {
+            throw new IllegalStateException("Cannot define kernel for " + expression, e);
+        }
+    }
+
+    // called from generated code, division needs the same zero check as the interpreter
+    static double divide(double dividend, double divisor) {
+        if (divisor == 0) {
+            throw new CalculatorException("Division by zero");
+        }
+        return dividend / divisor;
+    }
+
+    static byte[] classFile(CompiledExpression expression) {
+        // every double takes two stack slots, plus the array and index pushed while loading a variable
+        int evalMaxStack = expression.maxStack() * 2 + 2;
+        if (evalMaxStack > MAX_STACK) {
+            return null;
+        }
+
+        ConstantPool pool = new ConstantPool();
+        int thisClass = pool.classRef(CLASS_NAME);
+        int superClass = pool.classRef("java/lang/Object");
+        int kernelInterface = pool.classRef(KERNEL_NAME);
+        int objectInit = pool.methodRef("java/lang/Object", "<init>", "()V");
+        int divide = pool.methodRef(HELPER_NAME, "divide", "(DD)D");
+        int initName = pool.utf8("<init>");
+        int initDescriptor = pool.utf8("()V");
+        int evalName = pool.utf8("eval");
+        int evalDescriptor = pool.utf8("([D)D");
+        int codeAttribute = pool.utf8("Code");
+
+        ByteArrayOutputStream evalCode = new ByteArrayOutputStream();
+        int[] code = expression.code();
+        double[] constants = expression.constants();
+        for (int pc = 0; pc < code.length; pc++) {
+            switch (code[pc]) {
+                case CompiledExpression.CONST:
+                    double value = constants[code[++pc]];
+                    if (Double.doubleToRawLongBits(value) == 0) {
+                        evalCode.write(DCONST_0);
+                    } else if (value == 1) {
+                        evalCode.write(DCONST_1);
+                    } else {
+                        evalCode.write(LDC2_W);
+                        writeShort(evalCode, pool.doubleConstant(value));
+                    }
+                    break;
+                case CompiledExpression.VAR:
+                    int slot = code[++pc];
+                    evalCode.write(ALOAD_1);
+                    if (slot <= 5) {
+                        evalCode.write(ICONST_0 + slot);
+                    } else if (slot <= Byte.MAX_VALUE) {
+                        evalCode.write(BIPUSH);
+                        evalCode.write(slot);
+                    } else if (slot <= Short.MAX_VALUE) {
+                        evalCode.write(SIPUSH);
+                        writeShort(evalCode, slot);
+                    } else {
+                        return null;
+                    }
+                    evalCode.write(DALOAD);
+                    break;
+                case CompiledExpression.ADD:
+                    evalCode.write(DADD);
+                    break;
+                case CompiledExpression.SUB:
+                    evalCode.write(DSUB);
+                    break;
+                case CompiledExpression.MUL:
+                    evalCode.write(DMUL);
+                    break;
+                case CompiledExpression.DIV:
+                    evalCode.write(INVOKESTATIC);
+                    writeShort(evalCode, divide);
+                    break;
+                case CompiledExpression.NEG:
+                    evalCode.write(DNEG);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown opcode " + code[pc]);
+            }
+            if (evalCode.size() >= MAX_CODE_LENGTH || pool.size() >= 0xFFFF) {
+                return null;
+            }
+        }
+        evalCode.write(DRETURN);
+
+        byte[] initCode = {(byte) ALOAD_0, (byte) INVOKESPECIAL, (byte) (objectInit >> 8), (byte) objectInit,
+                (byte) RETURN};
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeInt(0xCAFEBABE);
+            out.writeShort(0);
+            out.writeShort(CLASS_VERSION);
+            pool.writeTo(out);
+            out.writeShort(CLASS_ACCESS);
+            out.writeShort(thisClass);
+            out.writeShort(superClass);
+            out.writeShort(1);
+            out.writeShort(kernelInterface);
+            out.writeShort(0);
+            out.writeShort(2);
+            writeMethod(out, initName, initDescriptor, codeAttribute, 1, 1, initCode);
+            writeMethod(out, evalName, evalDescriptor, codeAttribute, evalMaxStack, 2, evalCode.toByteArray());
+            out.writeShort(0);
+            return bytes.toByteArray();
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void writeMethod(DataOutputStream out, int name, int descriptor, int codeAttribute,
+                                    int maxStack, int maxLocals, byte[] code) throws IOException {
+        out.writeShort(ACC_PUBLIC);
+        out.writeShort(name);
+        out.writeShort(descriptor);
+        out.writeShort(1);
+        out.writeShort(codeAttribute);
+        // max_stack, max_locals, code_length, code, no exception table, no attributes
+        out.writeInt(2 + 2 + 4 + code.length + 2 + 2);
+        out.writeShort(maxStack);
+        out.writeShort(maxLocals);
+        out.writeInt(code.length);
+        out.write(code);
+        out.writeShort(0);
+        out.writeShort(0);
+    }
+
+    private static void writeShort(ByteArrayOutputStream out, int value) {
+        out.write(value >> 8);
+        out.write(value);
+    }
+
+    // Constant pool entries, deduplicated. Indexes start at 1 and doubles take two of them.
+    private static final class ConstantPool {
+        private static final int UTF8 = 1;
+        private static final int DOUBLE = 6;
+        private static final int CLASS = 7;
+        private static final int METHOD_REF = 10;
+        private static final int NAME_AND_TYPE = 12;
+
+        private final ByteArrayOutputStream entries = new ByteArrayOutputStream();
+        private final DataOutputStream out = new DataOutputStream(entries);
+        private final Map<Object, Integer> indexes = new HashMap<>();
+        private int next = 1;
+
+        int utf8(String value) {
+            return indexes.computeIfAbsent("utf8:" + value, key -> add(1, () -> {
+                out.writeByte(UTF8);
+                out.writeUTF(value);
+            }));
+        }
+
+        int classRef(String internalName) {
+            int name = utf8(internalName);
+            return indexes.computeIfAbsent("class:" + internalName, key -> add(1, () -> {
+                out.writeByte(CLASS);
+                out.writeShort(name);
+            }));
+        }
+
+        int methodRef(String owner, String name, String descriptor) {
+            int ownerIndex = classRef(owner);
+            int nameIndex = utf8(name);
+            int descriptorIndex = utf8(descriptor);
+            int nameAndType = indexes.computeIfAbsent("nat:" + name + descriptor, key -> add(1, () -> {
+                out.writeByte(NAME_AND_TYPE);
+                out.writeShort(nameIndex);
+                out.writeShort(descriptorIndex);
+            }));
+            return indexes.computeIfAbsent("method:" + owner + "." + name + descriptor, key -> add(1, () -> {
+                out.writeByte(METHOD_REF);
+                out.writeShort(ownerIndex);
+                out.writeShort(nameAndType);
+            }));
+        }
+
+        int doubleConstant(double value) {
+            // keyed by bits so that 0.0 and -0.0 stay apart
+            return indexes.computeIfAbsent(Double.doubleToRawLongBits(value), key -> add(2, () -> {
+                out.writeByte(DOUBLE);
+                out.writeDouble(value);
+            }));
+        }
+
+        int size() {
+            return next;
+        }
+
+        void writeTo(DataOutputStream target) throws IOException {
+            target.writeShort(next);
+            entries.writeTo(target);
+        }
+
+        private int add(int slots, Entry entry) {
+            try {
+                entry.write();
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            int index = next;
+            next += slots;
+            return index;
+        }
+
+        private interface Entry {
+            void write() throws IOException;
+        }
+    }
+}
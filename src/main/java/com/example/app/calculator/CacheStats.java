@@ -0,0 +1,10 @@
+package com.example.app.calculator;
+
+// Counters of an evaluator's expression cache, see ArithmeticEvaluator#cacheStats()
+public record CacheStats(long hits, long misses, long evictions, int size, int capacity) {
+
+    public double hitRate() {
+        long requests = hits + misses;
+        return requests == 0 ? 0 : (double) hits / requests;
+    }
+}
@@ -0,0 +1,108 @@
+package com.example.app.calculator;
+
+import com.example.app.exception.CalculatorException;
+
+import java.util.Arrays;
+
+/**
+ * Runs a compiled program over whole columns, one operator at a time across a
+ * block of rows, instead of walking the program once per row. Every operator is
+ * a plain counted loop over double arrays, which C2 auto-vectorizes.
+ */
+final class ColumnEvaluator {
+    // rows per block: big enough to amortize dispatch, small enough for the stack to stay in cache
+    static final int BLOCK_SIZE = 1024;
+    // doubles the block stack may hold; deeply nested expressions get shorter blocks
+    private static final int MAX_SCRATCH = 1 << 20;
+
+    private ColumnEvaluator() {
+    }
+
+    // columns are indexed by variable slot, out.length is the number of rows
+    static void evaluate(CompiledExpression expression, double[][] columns, double[] out) {
+        int rows = out.length;
+        int variableCount = expression.variables().size();
+        if (columns.length < variableCount) {
+            throw new CalculatorException("No column for variable: " + expression.variables().get(columns.length));
+        }
+        for (int slot = 0; slot < variableCount; slot++) {
+            if (columns[slot].length < rows) {
+                throw new CalculatorException("Column for variable " + expression.variables().get(slot)
+                        + " has " + columns[slot].length + " rows, expected " + rows);
+            }
+        }
+
+        int[] code = expression.code();
+        double[] constants = expression.constants();
+        int blockSize = Math.max(1, Math.min(BLOCK_SIZE, MAX_SCRATCH / expression.maxStack()));
+        double[][] stack = new double[expression.maxStack()][Math.min(blockSize, rows)];
+        for (int start = 0; start < rows; start += blockSize) {
+            int n = Math.min(blockSize, rows - start);
+            int sp = 0;
+            for (int pc = 0; pc < code.length; pc++) {
+                switch (code[pc]) {
+                    case CompiledExpression.CONST:
+                        Arrays.fill(stack[sp++], 0, n, constants[code[++pc]]);
+                        break;
+                    case CompiledExpression.VAR:
+                        System.arraycopy(columns[code[++pc]], start, stack[sp++], 0, n);
+                        break;
+                    case CompiledExpression.ADD:
+                        add(stack[sp - 2], stack[--sp], n);
+                        break;
+                    case CompiledExpression.SUB:
+                        subtract(stack[sp - 2], stack[--sp], n);
+                        break;
+                    case CompiledExpression.MUL:
+                        multiply(stack[sp - 2], stack[--sp], n);
+                        break;
+                    case CompiledExpression.DIV:
+                        divide(stack[sp - 2], stack[--sp], n);
+                        break;
+                    case CompiledExpression.NEG:
+                        negate(stack[sp - 1], n);
+                        break;
+                    default:
+                        throw new IllegalStateException("Unknown opcode " + code[pc]);
+                }
+            }
+            System.arraycopy(stack[0], 0, out, start, n);
+        }
+    }
+
+    private static void add(double[] a, double[] b, int n) {
+        for (int i = 0; i < n; i++) {
+            a[i] += b[i];
+        }
+    }
+
+    private static void subtract(double[] a, double[] b, int n) {
+        for (int i = 0; i < n; i++) {
+            a[i] -= b[i];
+        }
+    }
+
+    private static void multiply(double[] a, double[] b, int n) {
+        for (int i = 0; i < n; i++) {
+            a[i] *= b[i];
+        }
+    }
+
+    private static void divide(double[] a, double[] b, int n) {
+        // checked in a separate pass so the division loop itself stays branch-free
+        for (int i = 0; i < n; i++) {
+            if (b[i] == 0) {
+                throw new CalculatorException("Division by zero");
+            }
+        }
+        for (int i = 0; i < n; i++) {
+            a[i] /= b[i];
+        }
+    }
+
+    private static void negate(double[] a, int n) {
+        for (int i = 0; i < n; i++) {
+            a[i] = -a[i];
+        }
+    }
+}
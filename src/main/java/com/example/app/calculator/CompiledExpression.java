@@ -0,0 +1,318 @@
+package com.example.app.calculator;
+
+import com.example.app.exception.CalculatorException;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * An arithmetic expression parsed once into a flat postfix program.
+ * Immutable and safe to share between threads; evaluation runs the
+ * program on a per-thread scratch stack and does not allocate.
+ * Variables get slots in the order given to the compiler, or else in
+ * the order they first appear, see {@link #variables()}.
+ */
+public final class CompiledExpression {
+    // opcodes; CONST is followed by an index into the constant pool
+    static final int CONST = 0;
+    static final int ADD = 1;
+    static final int SUB = 2;
+    static final int MUL = 3;
+    static final int DIV = 4;
+    static final int NEG = 5;
+    // followed by the variable's slot
+    static final int VAR = 6;
+
+    // evaluations after which the expression is compiled to bytecode; 0 means never,
+    // which -Dcalculator.jit.threshold=0 or any negative value selects
+    static final int DEFAULT_JIT_THRESHOLD = 10_000;
+    static final int JIT_THRESHOLD = jitThreshold(System.getProperty("calculator.jit.threshold"));
+    private static final ExpressionKernel NOT_COMPILABLE = values -> {
+        throw new IllegalStateException("Expression has no kernel");
+    };
+    private static final double[] NO_VALUES = new double[0];
+    private static final ThreadLocal<double[]> SCRATCH = ThreadLocal.withInitial(() -> new double[16]);
+
+    private final String source;
+    private final int[] code;
+    private final double[] constants;
+    private final String[] variables;
+    private final int maxStack;
+    // set once the expression got hot; NOT_COMPILABLE if that failed
+    private volatile ExpressionKernel kernel;
+    // only decides when to compile, so lost updates between threads do not matter
+    private int invocations;
+
+    CompiledExpression(String source, int[] code, double[] constants, String[] variables, int maxStack) {
+        this.source = source;
+        this.code = code;
+        this.constants = constants;
+        this.variables = variables;
+        this.maxStack = maxStack;
+    }
+
+    public List<String> variables() {
+        return List.of(variables);
+    }
+
+    // slot of the variable, or -1 if the expression does not have it
+    public int slotOf(String variable) {
+        return Arrays.asList(variables).indexOf(variable);
+    }
+
+    public double evaluate() {
+        return evaluate(NO_VALUES);
+    }
+
+    // values are indexed by variable slot
+    public double evaluate(double... values) {
+        if (values.length < variables.length) {
+            throw new CalculatorException("No value for variable: " + variables[values.length]);
+        }
+        ExpressionKernel kernel = this.kernel;
+        if (kernel != null && kernel != NOT_COMPILABLE) {
+            return kernel.eval(values);
+        }
+        if (kernel == null && JIT_THRESHOLD > 0 && ++invocations >= JIT_THRESHOLD) {
+            compileKernel();
+        }
+        return run(values);
+    }
+
+    /**
+     * Looks every variable up once, before the program runs, so the resolver may
+     * itself evaluate expressions on this thread. A lookup that fails or finds
+     * nothing, e.g. Map::get on a missing name, raises CalculatorException.
+     */
+    public double evaluate(ToDoubleFunction<String> resolver) {
+        double[] values = new double[variables.length];
+        for (int slot = 0; slot < values.length; slot++) {
+            try {
+                values[slot] = resolver.applyAsDouble(variables[slot]);
+            } catch (CalculatorException e) {
+                throw e;
+            } catch (RuntimeException e) {
+                throw new CalculatorException("No value for variable: " + variables[slot], e);
+            }
+        }
+        return run(values);
+    }
+
+    private double run(double[] values) {
+        return execute(code, code.length, constants, maxStack, values);
+    }
+
+    // Nothing is called out of the loop, so no other evaluation can reuse the
+    // thread's scratch stack while this one holds it.
+    private static double execute(int[] code, int length, double[] constants, int maxStack, double[] values) {
+        double[] stack = SCRATCH.get();
+        if (stack.length < maxStack) {
+            stack = new double[maxStack];
+            SCRATCH.set(stack);
+        }
+
+        int sp = 0;
+        for (int pc = 0; pc < length; pc++) {
+            switch (code[pc]) {
+                case CONST:
+                    stack[sp++] = constants[code[++pc]];
+                    break;
+                case ADD:
+                    sp--;
+                    stack[sp - 1] += stack[sp];
+                    break;
+                case SUB:
+                    sp--;
+                    stack[sp - 1] -= stack[sp];
+                    break;
+                case MUL:
+                    sp--;
+                    stack[sp - 1] *= stack[sp];
+                    break;
+                case DIV:
+                    sp--;
+                    if (stack[sp] == 0) {
+                        throw new CalculatorException("Division by zero");
+                    }
+                    stack[sp - 1] /= stack[sp];
+                    break;
+                case NEG:
+                    stack[sp - 1] = -stack[sp - 1];
+                    break;
+                case VAR:
+                    stack[sp++] = values[code[++pc]];
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown opcode " + code[pc]);
+            }
+        }
+        return stack[0];
+    }
+
+    // the threshold a -Dcalculator.jit.threshold value selects; unset or not a number is the default
+    static int jitThreshold(String property) {
+        if (property == null) {
+            return DEFAULT_JIT_THRESHOLD;
+        }
+        try {
+            return Math.max(0, Integer.parseInt(property.trim()));
+        } catch (NumberFormatException e) {
+            return DEFAULT_JIT_THRESHOLD;
+        }
+    }
+
+    boolean isJitCompiled() {
+        ExpressionKernel kernel = this.kernel;
+        return kernel != null && kernel != NOT_COMPILABLE;
+    }
+
+    // Like tiered compilation in HotSpot, the hot expression gets a bytecode tier.
+    // Compiling it again from another thread is harmless, the result is the same.
+    synchronized void compileKernel() {
+        if (kernel != null) {
+            return;
+        }
+        ExpressionKernel compiled;
+        try {
+            compiled = BytecodeCompiler.compile(this);
+        } catch (RuntimeException e) {
+            compiled = null;
+        }
+        kernel = compiled != null ? compiled : NOT_COMPILABLE;
+    }
+
+    int[] code() {
+        return code;
+    }
+
+    double[] constants() {
+        return constants;
+    }
+
+    int maxStack() {
+        return maxStack;
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    /**
+     * Collects the postfix program while the parser walks the expression
+     * and keeps track of how deep the evaluation stack gets.
+     * Reusable: reset() keeps the buffers, so a warm builder does not allocate.
+     */
+    static final class Builder {
+        private final List<String> variables = new ArrayList<>();
+        private boolean declared;
+        private int[] code = new int[16];
+        private int codeLength;
+        private double[] constants = new double[8];
+        // exact form of every constant: unscaled * 10^-scale, or decimals[i] when scale is -1
+        private long[] unscaled = new long[8];
+        private int[] scales = new int[8];
+        private BigDecimal[] decimals;
+        private int constantCount;
+        private int depth;
+        private int maxStack;
+
+        // with no declared variables, every name seen gets the next free slot
+        void reset(String... variables) {
+            this.variables.clear();
+            for (String variable : variables) {
+                this.variables.add(variable);
+            }
+            this.declared = variables.length > 0;
+            codeLength = 0;
+            constantCount = 0;
+            decimals = null;
+            depth = 0;
+            maxStack = 0;
+        }
+
+        void constant(double value, long unscaled, int scale) {
+            addConstant(value, unscaled, scale, null);
+        }
+
+        // for numbers without an exact long form; decimal may be null if nobody needs it
+        void constant(double value, BigDecimal decimal) {
+            addConstant(value, 0, -1, decimal);
+        }
+
+        private void addConstant(double value, long unscaled, int scale, BigDecimal decimal) {
+            if (constantCount == constants.length) {
+                constants = Arrays.copyOf(constants, constantCount * 2);
+                this.unscaled = Arrays.copyOf(this.unscaled, constantCount * 2);
+                scales = Arrays.copyOf(scales, constantCount * 2);
+            }
+            constants[constantCount] = value;
+            this.unscaled[constantCount] = unscaled;
+            scales[constantCount] = scale;
+            if (decimal != null) {
+                if (decimals == null || decimals.length < constants.length) {
+                    decimals = decimals == null
+                            ? new BigDecimal[constants.length] : Arrays.copyOf(decimals, constants.length);
+                }
+                decimals[constantCount] = decimal;
+            }
+            emit(CONST);
+            emit(constantCount++);
+            depth++;
+            maxStack = Math.max(maxStack, depth);
+        }
+
+        void variable(String name) {
+            int slot = variables.indexOf(name);
+            if (slot == -1) {
+                if (declared) {
+                    throw new CalculatorException("Unknown variable: " + name);
+                }
+                slot = variables.size();
+                variables.add(name);
+            }
+            emit(VAR);
+            emit(slot);
+            depth++;
+            maxStack = Math.max(maxStack, depth);
+        }
+
+        void operator(int opcode) {
+            emit(opcode);
+            if (opcode != NEG) {
+                depth--;
+            }
+        }
+
+        // runs the program straight from the builder's buffers
+        double evaluate() {
+            if (!variables.isEmpty()) {
+                throw new CalculatorException("No value for variable: " + variables.get(0));
+            }
+            return execute(code, codeLength, constants, maxStack, NO_VALUES);
+        }
+
+        CompiledExpression build(String source) {
+            return new CompiledExpression(source, Arrays.copyOf(code, codeLength),
+                    Arrays.copyOf(constants, constantCount), variables.toArray(new String[0]), maxStack);
+        }
+
+        ExactExpression buildExact(String source, MathContext mathContext) {
+            return new ExactExpression(source, Arrays.copyOf(code, codeLength),
+                    Arrays.copyOf(unscaled, constantCount), Arrays.copyOf(scales, constantCount),
+                    decimals == null ? new BigDecimal[constantCount] : Arrays.copyOf(decimals, constantCount),
+                    variables.toArray(new String[0]), maxStack, mathContext);
+        }
+
+        private void emit(int value) {
+            if (codeLength == code.length) {
+                code = Arrays.copyOf(code, codeLength * 2);
+            }
+            code[codeLength++] = value;
+        }
+    }
+}
@@ -0,0 +1,299 @@
+package com.example.app.calculator;
+
+import com.example.app.exception.CalculatorException;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.List;
+
+import static com.example.app.calculator.CompiledExpression.*;
+
+/**
+ * An expression compiled for exact decimal arithmetic, so that 0.1 + 0.2 is 0.3.
+ *
+ * Values are first kept as long fixed-point numbers (unscaled value and decimal
+ * scale) with overflow checks on every operation. If anything overflows, or a
+ * division does not come out even, the whole evaluation is redone with
+ * BigDecimal. Addition, subtraction and multiplication are always exact there;
+ * division is rounded to the MathContext given at compile time. Every quotient
+ * is rounded the same way whichever path computes it: an even long quotient with
+ * more digits than the MathContext's precision also sends the evaluation to
+ * BigDecimal, so with a precision of 3, 123456 / 1 is 1.23E+5. Both paths give
+ * the same BigDecimal, scale included: an even quotient keeps divide's preferred
+ * scale, the dividend's minus the divisor's, so 1 / 0.1 is 1E+1 either way.
+ *
+ * {@link #evaluateLong} stays on the long path for integer expressions and does
+ * not allocate. Immutable and safe to share between threads.
+ */
+public final class ExactExpression {
+    private static final long[] POWERS_OF_TEN = {
+        1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L, 1_000_000_000L,
+        10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L, 10_000_000_000_000L, 100_000_000_000_000L,
+        1_000_000_000_000_000L, 10_000_000_000_000_000L, 100_000_000_000_000_000L, 1_000_000_000_000_000_000L
+    };
+    private static final long[] NO_LONGS = new long[0];
+    private static final BigDecimal[] NO_DECIMALS = new BigDecimal[0];
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final String source;
+    private final int[] code;
+    private final long[] unscaled;
+    private final int[] scales;
+    private final BigDecimal[] decimals;
+    private final String[] variables;
+    private final int maxStack;
+    private final MathContext mathContext;
+    // an even long quotient this large in magnitude needs rounding to mathContext
+    private final long quotientLimit;
+    // some constant has no long form, so the long path can never work
+    private final boolean requiresBigDecimal;
+
+    ExactExpression(String source, int[] code, long[] unscaled, int[] scales, BigDecimal[] decimals,
+                    String[] variables, int maxStack, MathContext mathContext) {
+        this.source = source;
+        this.code = code;
+        this.unscaled = unscaled;
+        this.scales = scales;
+        this.decimals = decimals;
+        this.variables = variables;
+        this.maxStack = maxStack;
+        this.mathContext = mathContext;
+        int precision = mathContext.getPrecision();
+        this.quotientLimit = precision == 0 || precision >= POWERS_OF_TEN.length
+                ? Long.MAX_VALUE : POWERS_OF_TEN[precision];
+        boolean requiresBigDecimal = false;
+        for (int i = 0; i < scales.length; i++) {
+            if (scales[i] < 0) {
+                requiresBigDecimal = true;
+                if (decimals[i] == null) {
+                    throw new IllegalArgumentException("Constant " + i + " has no exact form");
+                }
+            }
+        }
+        this.requiresBigDecimal = requiresBigDecimal;
+    }
+
+    public List<String> variables() {
+        return List.of(variables);
+    }
+
+    public MathContext mathContext() {
+        return mathContext;
+    }
+
+    public BigDecimal evaluate() {
+        return evaluate(NO_DECIMALS);
+    }
+
+    // values are indexed by variable slot
+    public BigDecimal evaluate(BigDecimal... values) {
+        checkValues(values.length);
+        if (!requiresBigDecimal) {
+            long[] valueUnscaled = new long[values.length];
+            int[] valueScales = new int[values.length];
+            boolean fits = true;
+            for (int i = 0; i < values.length && fits; i++) {
+                BigDecimal value = values[i].scale() < 0 ? values[i].setScale(0) : values[i];
+                fits = value.precision() <= 18;
+                if (fits) {
+                    valueUnscaled[i] = value.unscaledValue().longValue();
+                    valueScales[i] = value.scale();
+                }
+            }
+            Scratch scratch = SCRATCH.get().ensure(maxStack);
+            if (fits && runLong(valueUnscaled, valueScales, scratch)) {
+                return BigDecimal.valueOf(scratch.unscaled[0], scratch.scales[0]);
+            }
+        }
+        return runBigDecimal(values);
+    }
+
+    public long evaluateLong() {
+        return evaluateLong(NO_LONGS);
+    }
+
+    // Integer arguments and an integer result; throws if the exact result is not a long.
+    public long evaluateLong(long... values) {
+        checkValues(values.length);
+        if (!requiresBigDecimal) {
+            Scratch scratch = SCRATCH.get().ensure(maxStack);
+            if (runLong(values, null, scratch)) {
+                long result = scratch.unscaled[0];
+                int scale = scratch.scales[0];
+                if (scale == 0) {
+                    return result;
+                }
+                if (scale < 0) {
+                    try {
+                        return Math.multiplyExact(result, powerOfTen(-scale));
+                    } catch (ArithmeticException e) {
+                        // the BigDecimal path reports it
+                    }
+                } else if (scale < POWERS_OF_TEN.length && result % POWERS_OF_TEN[scale] == 0) {
+                    return result / POWERS_OF_TEN[scale];
+                }
+            }
+        }
+
+        BigDecimal[] decimalValues = new BigDecimal[values.length];
+        for (int i = 0; i < values.length; i++) {
+            decimalValues[i] = BigDecimal.valueOf(values[i]);
+        }
+        BigDecimal result = runBigDecimal(decimalValues);
+        try {
+            return result.longValueExact();
+        } catch (ArithmeticException e) {
+            throw new CalculatorException("Result is not a long: " + result);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return source;
+    }
+
+    private void checkValues(int count) {
+        if (count < variables.length) {
+            throw new CalculatorException("No value for variable: " + variables[count]);
+        }
+    }
+
+    // Returns false if the result does not fit the long representation; valueScales null means all 0.
+    private boolean runLong(long[] values, int[] valueScales, Scratch scratch) {
+        long[] stack = scratch.unscaled;
+        int[] stackScales = scratch.scales;
+        int sp = 0;
+        try {
+            for (int pc = 0; pc < code.length; pc++) {
+                switch (code[pc]) {
+                    case CONST:
+                        int index = code[++pc];
+                        stack[sp] = unscaled[index];
+                        stackScales[sp++] = scales[index];
+                        break;
+                    case VAR:
+                        int slot = code[++pc];
+                        stack[sp] = values[slot];
+                        stackScales[sp++] = valueScales == null ? 0 : valueScales[slot];
+                        break;
+                    case ADD:
+                    case SUB:
+                        sp--;
+                        align(stack, stackScales, sp - 1, sp);
+                        stack[sp - 1] = code[pc] == ADD
+                                ? Math.addExact(stack[sp - 1], stack[sp])
+                                : Math.subtractExact(stack[sp - 1], stack[sp]);
+                        break;
+                    case MUL:
+                        sp--;
+                        stack[sp - 1] = Math.multiplyExact(stack[sp - 1], stack[sp]);
+                        stackScales[sp - 1] += stackScales[sp];
+                        break;
+                    case DIV:
+                        sp--;
+                        long dividend = stack[sp - 1];
+                        long divisor = stack[sp];
+                        if (divisor == 0) {
+                            throw new CalculatorException("Division by zero");
+                        }
+                        if (dividend % divisor != 0 || dividend == Long.MIN_VALUE && divisor == -1) {
+                            return false;
+                        }
+                        long quotient = dividend / divisor;
+                        if (quotient >= quotientLimit || quotient <= -quotientLimit) {
+                            return false;
+                        }
+                        // BigDecimal.divide's preferred scale, which it keeps for a quotient that
+                        // fits the precision; it may be negative, 1 / 0.1 is 1E+1
+                        stack[sp - 1] = quotient;
+                        stackScales[sp - 1] -= stackScales[sp];
+                        break;
+                    case NEG:
+                        stack[sp - 1] = Math.negateExact(stack[sp - 1]);
+                        break;
+                    default:
+                        throw new IllegalStateException("Unknown opcode " + code[pc]);
+                }
+            }
+        } catch (ArithmeticException e) {
+            return false;
+        }
+        return true;
+    }
+
+    private BigDecimal runBigDecimal(BigDecimal[] values) {
+        BigDecimal[] stack = new BigDecimal[maxStack];
+        int sp = 0;
+        for (int pc = 0; pc < code.length; pc++) {
+            switch (code[pc]) {
+                case CONST:
+                    int index = code[++pc];
+                    stack[sp++] = scales[index] >= 0 ? BigDecimal.valueOf(unscaled[index], scales[index]) : decimals[index];
+                    break;
+                case VAR:
+                    stack[sp++] = values[code[++pc]];
+                    break;
+                case ADD:
+                    sp--;
+                    stack[sp - 1] = stack[sp - 1].add(stack[sp]);
+                    break;
+                case SUB:
+                    sp--;
+                    stack[sp - 1] = stack[sp - 1].subtract(stack[sp]);
+                    break;
+                case MUL:
+                    sp--;
+                    stack[sp - 1] = stack[sp - 1].multiply(stack[sp]);
+                    break;
+                case DIV:
+                    sp--;
+                    if (stack[sp].signum() == 0) {
+                        throw new CalculatorException("Division by zero");
+                    }
+                    try {
+                        stack[sp - 1] = stack[sp - 1].divide(stack[sp], mathContext);
+                    } catch (ArithmeticException e) {
+                        throw new CalculatorException("Inexact division, compile with a limited MathContext", e);
+                    }
+                    break;
+                case NEG:
+                    stack[sp - 1] = stack[sp - 1].negate();
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown opcode " + code[pc]);
+            }
+        }
+        return stack[0];
+    }
+
+    // brings both operands to the larger of their scales
+    private static void align(long[] stack, int[] scales, int a, int b) {
+        if (scales[a] < scales[b]) {
+            stack[a] = Math.multiplyExact(stack[a], powerOfTen(scales[b] - scales[a]));
+            scales[a] = scales[b];
+        } else if (scales[b] < scales[a]) {
+            stack[b] = Math.multiplyExact(stack[b], powerOfTen(scales[a] - scales[b]));
+            scales[b] = scales[a];
+        }
+    }
+
+    private static long powerOfTen(int exponent) {
+        if (exponent >= POWERS_OF_TEN.length) {
+            throw new ArithmeticException("10^" + exponent + " overflows a long");
+        }
+        return POWERS_OF_TEN[exponent];
+    }
+
+    private static final class Scratch {
+        long[] unscaled = new long[16];
+        int[] scales = new int[16];
+
+        Scratch ensure(int size) {
+            if (unscaled.length < size) {
+                unscaled = new long[size];
+                scales = new int[size];
+            }
+            return this;
+        }
+    }
+}
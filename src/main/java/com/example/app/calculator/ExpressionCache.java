@@ -0,0 +1,91 @@
+package com.example.app.calculator;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Size-bounded cache of compiled expressions keyed by their trimmed text.
+ * Keys are spread over independently locked LRU segments, so threads sharing
+ * one evaluator only contend when they hit the same segment.
+ */
+final class ExpressionCache {
+    private static final int MAX_SEGMENTS = 16;
+    // a segment should hold at least this many entries for LRU order to mean anything
+    private static final int MIN_SEGMENT_CAPACITY = 16;
+
+    private final Segment[] segments;
+    private final int capacity;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    ExpressionCache(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Cache capacity must be positive: " + capacity);
+        }
+        int segmentCount = Integer.highestOneBit(
+                Math.max(1, Math.min(MAX_SEGMENTS, capacity / MIN_SEGMENT_CAPACITY)));
+        // the first capacity % segmentCount segments hold one extra entry, so together they hold capacity exactly
+        this.segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment(capacity / segmentCount + (i < capacity % segmentCount ? 1 : 0));
+        }
+        this.capacity = capacity;
+    }
+
+    // Compiles outside the segment lock; two threads missing on the same key
+    // may both compile it, and the later one wins.
+    CompiledExpression get(String key, Function<String, CompiledExpression> compiler) {
+        Segment segment = segmentFor(key);
+        CompiledExpression cached;
+        synchronized (segment) {
+            cached = segment.get(key);
+        }
+        if (cached != null) {
+            hits.increment();
+            return cached;
+        }
+
+        misses.increment();
+        CompiledExpression compiled = compiler.apply(key);
+        synchronized (segment) {
+            segment.put(key, compiled);
+        }
+        return compiled;
+    }
+
+    CacheStats stats() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return new CacheStats(hits.sum(), misses.sum(), evictions.sum(), size, capacity);
+    }
+
+    private Segment segmentFor(String key) {
+        int hash = key.hashCode();
+        return segments[(hash ^ (hash >>> 16)) & (segments.length - 1)];
+    }
+
+    private final class Segment extends LinkedHashMap<String, CompiledExpression> {
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, CompiledExpression> eldest) {
+            if (size() > capacity) {
+                evictions.increment();
+                return true;
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.app.calculator;
+
+// Machine-compiled form of an expression, implemented by classes generated in BytecodeCompiler
+interface ExpressionKernel {
+    // values are indexed by variable slot
+    double eval(double[] values);
+}
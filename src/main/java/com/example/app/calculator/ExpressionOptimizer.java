@@ -0,0 +1,239 @@
+package com.example.app.calculator;
+
+import com.example.app.exception.CalculatorException;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import static com.example.app.calculator.CompiledExpression.*;
+
+/**
+ * Rewrites a postfix program into an equivalent, cheaper one in a single pass:
+ * folds constant subtrees, drops double negation, removes the identities
+ * x*1, 1*x, x/1, x+0, 0+x and x-0, and turns division by a power of two into
+ * multiplication by its exact reciprocal. Division by a literal zero is
+ * reported here instead of on every evaluation.
+ *
+ * Every rewrite gives the same IEEE result, except that x+0 and 0+x may keep
+ * the sign of a zero x; both zeros compare equal and are treated alike.
+ *
+ * The pass tracks, for every value on the evaluation stack, where the code
+ * computing it starts in the output and whether it is a known constant, so
+ * a rewrite only ever touches the tail of the output.
+ */
+final class ExpressionOptimizer {
+    private int[] out;
+    private int length;
+    private double[] constants;
+    private int constantCount;
+
+    // per stack entry: first output index of its code, constant value if any, ends with NEG
+    private final int[] starts;
+    private final boolean[] isConstant;
+    private final double[] values;
+    private final boolean[] negated;
+    private int sp;
+
+    private ExpressionOptimizer(CompiledExpression expression) {
+        int maxStack = expression.maxStack();
+        this.out = new int[expression.code().length];
+        this.constants = new double[Math.max(1, expression.constants().length)];
+        this.starts = new int[maxStack];
+        this.isConstant = new boolean[maxStack];
+        this.values = new double[maxStack];
+        this.negated = new boolean[maxStack];
+    }
+
+    static CompiledExpression optimize(CompiledExpression expression) {
+        return new ExpressionOptimizer(expression).run(expression);
+    }
+
+    private CompiledExpression run(CompiledExpression expression) {
+        int[] code = expression.code();
+        double[] source = expression.constants();
+        for (int pc = 0; pc < code.length; pc++) {
+            switch (code[pc]) {
+                case CONST:
+                    pushConstant(source[code[++pc]]);
+                    break;
+                case VAR:
+                    starts[sp] = length;
+                    isConstant[sp] = false;
+                    negated[sp] = false;
+                    sp++;
+                    emit(VAR);
+                    emit(code[++pc]);
+                    break;
+                case NEG:
+                    negate();
+                    break;
+                default:
+                    binary(code[pc]);
+                    break;
+            }
+        }
+        return compact(expression);
+    }
+
+    private void negate() {
+        int top = sp - 1;
+        if (isConstant[top]) {
+            length = starts[top];
+            sp--;
+            pushConstant(-values[top]);
+        } else if (negated[top]) {
+            // -(-x) is exactly x
+            length--;
+            negated[top] = false;
+        } else {
+            emit(NEG);
+            negated[top] = true;
+        }
+    }
+
+    private void binary(int opcode) {
+        int right = --sp;
+        int left = sp - 1;
+
+        if (opcode == DIV && isConstant[right] && values[right] == 0) {
+            throw new CalculatorException("Division by zero");
+        }
+        if (isConstant[left] && isConstant[right]) {
+            double value = fold(opcode, values[left], values[right]);
+            length = starts[left];
+            sp--;
+            pushConstant(value);
+            return;
+        }
+        if (isConstant[right] && isRightIdentity(opcode, values[right])) {
+            // x*1, x/1, x+0, x-0: drop the constant, x stays on top
+            length = starts[right];
+            return;
+        }
+        if (isConstant[left] && isLeftIdentity(opcode, values[left])) {
+            // 1*x, 0+x: move x's code over the constant
+            int from = starts[right];
+            int to = starts[left];
+            System.arraycopy(out, from, out, to, length - from);
+            length -= from - to;
+            negated[left] = negated[right];
+            isConstant[left] = false;
+            return;
+        }
+        if (opcode == DIV && isConstant[right]) {
+            double reciprocal = exactReciprocal(values[right]);
+            if (reciprocal != 0) {
+                // x/c == x*(1/c) bit for bit when 1/c is exact
+                constants[out[starts[right] + 1]] = reciprocal;
+                opcode = MUL;
+            }
+        }
+        emit(opcode);
+        isConstant[left] = false;
+        negated[left] = false;
+    }
+
+    private static boolean isRightIdentity(int opcode, double value) {
+        switch (opcode) {
+            case MUL:
+            case DIV:
+                return value == 1;
+            case ADD:
+            case SUB:
+                return value == 0;
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isLeftIdentity(int opcode, double value) {
+        return opcode == MUL && value == 1 || opcode == ADD && value == 0;
+    }
+
+    private static double fold(int opcode, double left, double right) {
+        switch (opcode) {
+            case ADD:
+                return left + right;
+            case SUB:
+                return left - right;
+            case MUL:
+                return left * right;
+            case DIV:
+                return left / right;
+            default:
+                throw new IllegalStateException("Unknown opcode " + opcode);
+        }
+    }
+
+    // 1/c if c is a power of two whose reciprocal is representable, otherwise 0
+    static double exactReciprocal(double c) {
+        if (Double.isNaN(c) || Double.isInfinite(c) || c == 0) {
+            return 0;
+        }
+        long mantissa = Double.doubleToRawLongBits(c) & 0x000F_FFFF_FFFF_FFFFL;
+        if (mantissa != 0 || Math.getExponent(c) < Double.MIN_EXPONENT) {
+            return 0;
+        }
+        double reciprocal = 1 / c;
+        return Double.isInfinite(reciprocal) || reciprocal * c != 1 ? 0 : reciprocal;
+    }
+
+    private void pushConstant(double value) {
+        starts[sp] = length;
+        isConstant[sp] = true;
+        values[sp] = value;
+        negated[sp] = false;
+        sp++;
+        if (constantCount == constants.length) {
+            constants = Arrays.copyOf(constants, constantCount * 2);
+        }
+        constants[constantCount] = value;
+        emit(CONST);
+        emit(constantCount++);
+    }
+
+    private void emit(int value) {
+        if (length == out.length) {
+            out = Arrays.copyOf(out, Math.max(4, length * 2));
+        }
+        out[length++] = value;
+    }
+
+    // Folding leaves unused entries in the constant pool; keep only the referenced
+    // ones, each value once, and work out the new stack depth.
+    private CompiledExpression compact(CompiledExpression expression) {
+        int[] code = Arrays.copyOf(out, length);
+        Map<Long, Integer> indexes = new HashMap<>();
+        double[] pool = new double[constantCount];
+        int poolSize = 0;
+        int depth = 0;
+        int maxStack = 0;
+        for (int pc = 0; pc < code.length; pc++) {
+            switch (code[pc]) {
+                case CONST:
+                    double value = constants[code[pc + 1]];
+                    Integer index = indexes.get(Double.doubleToRawLongBits(value));
+                    if (index == null) {
+                        index = poolSize;
+                        indexes.put(Double.doubleToRawLongBits(value), index);
+                        pool[poolSize++] = value;
+                    }
+                    code[++pc] = index;
+                    maxStack = Math.max(maxStack, ++depth);
+                    break;
+                case VAR:
+                    pc++;
+                    maxStack = Math.max(maxStack, ++depth);
+                    break;
+                case NEG:
+                    break;
+                default:
+                    depth--;
+                    break;
+            }
+        }
+        return new CompiledExpression(expression.toString(), code, Arrays.copyOf(pool, poolSize),
+                expression.variables().toArray(new String[0]), maxStack);
+    }
+}
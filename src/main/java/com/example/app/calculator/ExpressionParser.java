@@ -0,0 +1,306 @@
+package com.example.app.calculator;
+
+import com.example.app.exception.CalculatorException;
+
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.util.Arrays;
+
+/**
+ * Parser that emits a postfix program instead of computing the value.
+ *
+ * It follows the grammar
+ *   expression = term (('+' | '-') term)*
+ *   term       = factor (('*' | '/') factor)*
+ *   factor     = '(' expression ')' | '-' factor | '+' factor | identifier | number
+ * but keeps the pending rules on an explicit stack rather than on the call
+ * stack, so nesting depth is limited only by the heap and costs O(1) native stack.
+ *
+ * It reads any CharSequence in place and is meant to be reused: one instance per
+ * thread parses and evaluates typical expressions without allocating anything.
+ */
+class ExpressionParser {
+    // What to do once the factor or sub-expression being parsed is complete.
+    // EXPRESSION and TERM frames remember the operator to emit at that point, if any.
+    private static final int EXPRESSION = 0;
+    private static final int EXPRESSION_ADD = 1;
+    private static final int EXPRESSION_SUB = 2;
+    private static final int TERM = 3;
+    private static final int TERM_MUL = 4;
+    private static final int TERM_DIV = 5;
+    private static final int NEGATE = 6;
+    private static final int PARENTHESIS = 7;
+
+    // numbers with at most this mantissa and 22 fractional digits are exact as m / 10^k
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+        1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final String[] NO_VARIABLES = new String[0];
+    private static final ThreadLocal<ExpressionParser> PARSERS = ThreadLocal.withInitial(ExpressionParser::new);
+
+    private final CompiledExpression.Builder program = new CompiledExpression.Builder();
+    private CharSequence expression;
+    // the expression is expression[start, end), positions in messages are relative to start
+    private int start;
+    private int end;
+    private int position;
+    private int[] frames = new int[16];
+    private int frameCount;
+    // exact form of the last number parsed: unscaled * 10^-scale, scale -1 if it does not fit a long
+    private long literalUnscaled;
+    private int literalScale;
+    private int literalStart;
+    // whether numbers without an exact long form are also kept as BigDecimal
+    private boolean exactLiterals;
+
+    // A parser that is only used by the calling thread. Not reentrant.
+    static ExpressionParser forCurrentThread() {
+        return PARSERS.get();
+    }
+
+    CompiledExpression compile(CharSequence text, String... variables) {
+        parse(text, variables);
+        return program.build(text.subSequence(start, end).toString());
+    }
+
+    ExactExpression compileExact(CharSequence text, MathContext mathContext, String... variables) {
+        exactLiterals = true;
+        try {
+            parse(text, variables);
+        } finally {
+            exactLiterals = false;
+        }
+        return program.buildExact(text.subSequence(start, end).toString(), mathContext);
+    }
+
+    // parses into the reused program buffer and runs it without building a CompiledExpression
+    double evaluate(CharSequence text) {
+        parse(text, NO_VARIABLES);
+        return program.evaluate();
+    }
+
+    private void parse(CharSequence text, String[] variables) {
+        // same bounds as String.trim()
+        start = 0;
+        end = text.length();
+        while (start < end && text.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && text.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (start == end) {
+            throw new CalculatorException("Expression cannot be empty");
+        }
+        expression = text;
+        position = start;
+        frameCount = 0;
+        program.reset(variables);
+
+        try {
+            parseExpression();
+        } finally {
+            // do not keep a large input reachable from the thread
+            expression = null;
+        }
+    }
+
+    private void parseExpression() {
+        // expression always starts with a number.
+        // If it does not, brackets and modifiers (+,-) are pushed as frames until it does
+        push(EXPRESSION);
+        push(TERM);
+        boolean expectFactor = true;
+
+        while (frameCount > 0) {
+            if (expectFactor) {
+                expectFactor = parseFactor();
+                continue;
+            }
+
+            // a complete operand is on the program stack, resume the rule waiting for it
+            int frame = frames[--frameCount];
+            switch (frame) {
+                case NEGATE:
+                    program.operator(CompiledExpression.NEG);
+                    break;
+                case PARENTHESIS:
+                    skipWhitespace();
+                    if (position >= end || expression.charAt(position) != ')') {
+                        throw new CalculatorException("Missing closing parenthesis");
+                    }
+                    position++;
+                    break;
+                case TERM_MUL:
+                case TERM_DIV:
+                    program.operator(frame == TERM_MUL ? CompiledExpression.MUL : CompiledExpression.DIV);
+                    expectFactor = continueWith('*', '/', TERM_MUL, TERM_DIV);
+                    break;
+                case TERM:
+                    expectFactor = continueWith('*', '/', TERM_MUL, TERM_DIV);
+                    break;
+                case EXPRESSION_ADD:
+                case EXPRESSION_SUB:
+                    program.operator(frame == EXPRESSION_ADD ? CompiledExpression.ADD : CompiledExpression.SUB);
+                    expectFactor = continueWith('+', '-', EXPRESSION_ADD, EXPRESSION_SUB);
+                    break;
+                case EXPRESSION:
+                    expectFactor = continueWith('+', '-', EXPRESSION_ADD, EXPRESSION_SUB);
+                    break;
+                default:
+                    throw new IllegalStateException("Unknown parser frame " + frame);
+            }
+        }
+
+        // this catches unacceptable chars after the check for '(', '+', '-', '*', '/')
+        if (position < end) {
+            throw new CalculatorException("Unexpected character: " + expression.charAt(position));
+        }
+    }
+
+    // If the next operator is one of the two, consumes it and waits for its right operand.
+    // Returns whether a factor has to be parsed next.
+    private boolean continueWith(char first, char second, int firstFrame, int secondFrame) {
+        if (position >= end) {
+            return false;
+        }
+        skipWhitespace();
+        char operator = peekChar();
+        if (operator != first && operator != second) {
+            return false;
+        }
+        position++;
+        push(operator == first ? firstFrame : secondFrame);
+        if (firstFrame == EXPRESSION_ADD) {
+            push(TERM);
+        }
+        return true;
+    }
+
+    // Returns whether another factor has to be parsed before the current one is complete.
+    private boolean parseFactor() {
+        skipWhitespace();
+        char ch = peekChar();
+
+        // this breaks the expression into brackets, which start a new expression
+        if (ch == '(') {
+            position++;
+            push(PARENTHESIS);
+            push(EXPRESSION);
+            push(TERM);
+            return true;
+        }
+
+        // the following two ifs consume modifiers (+,-) ahead of the factor they apply to
+        if (ch == '-') {
+            position++;
+            push(NEGATE);
+            return true;
+        }
+
+        if (ch == '+') {
+            position++;
+            return true;
+        }
+
+        if (Character.isLetter(ch) || ch == '_') {
+            program.variable(parseIdentifier());
+            return false;
+        }
+
+        double value = parseNumber();
+        if (literalScale >= 0) {
+            program.constant(value, literalUnscaled, literalScale);
+        } else {
+            program.constant(value, exactLiterals
+                    ? new BigDecimal(expression.subSequence(literalStart, position).toString()) : null);
+        }
+        return false;
+    }
+
+    private void push(int frame) {
+        if (frameCount == frames.length) {
+            frames = Arrays.copyOf(frames, frameCount * 2);
+        }
+        frames[frameCount++] = frame;
+    }
+
+    private String parseIdentifier() {
+        int startPos = position;
+        while (position < end &&
+               (Character.isLetterOrDigit(expression.charAt(position)) || expression.charAt(position) == '_')) {
+            position++;
+        }
+        return expression.subSequence(startPos, position).toString();
+    }
+
+    private double parseNumber() {
+        skipWhitespace();
+        int startPos = position;
+        boolean hasDecimal = false;
+        long mantissa = 0;
+        int scale = 0;
+        boolean exact = true;
+
+        // Handle digits before and after the decimal point, accumulating them as we go
+        while (position < end) {
+            char ch = expression.charAt(position);
+            if (ch >= '0' && ch <= '9') {
+                if (mantissa <= (MAX_EXACT_MANTISSA - 9) / 10) {
+                    mantissa = mantissa * 10 + (ch - '0');
+                    if (hasDecimal) {
+                        scale++;
+                    }
+                } else {
+                    exact = false;
+                }
+            } else if (ch == '.') {
+                if (hasDecimal) {
+                    throw new CalculatorException("Invalid number format: multiple decimal points");
+                }
+                hasDecimal = true;
+            } else if (Character.isDigit(ch)) {
+                // a non-ASCII digit, leave it to Double.parseDouble to reject
+                exact = false;
+            } else {
+                break;
+            }
+            position++;
+        }
+
+        if (startPos == position) {
+            throw new CalculatorException("Expected number at position " + (position - start));
+        }
+
+        // Both the mantissa and the power of ten are exact doubles, so a single
+        // division is correctly rounded. Anything else takes the slow path.
+        literalStart = startPos;
+        if (exact && scale < POWERS_OF_TEN.length && !(hasDecimal && position - startPos == 1)) {
+            literalUnscaled = mantissa;
+            literalScale = scale;
+            return scale == 0 ? mantissa : mantissa / POWERS_OF_TEN[scale];
+        }
+        literalScale = -1;
+        try {
+            return Double.parseDouble(expression.subSequence(startPos, position).toString());
+        } catch (NumberFormatException e) {
+            throw new CalculatorException("Invalid number format");
+        }
+    }
+
+    private void skipWhitespace() {
+        while (position < end &&
+               Character.isWhitespace(expression.charAt(position))) {
+            position++;
+        }
+    }
+
+    private char peekChar() {
+        if (position >= end) {
+            throw new CalculatorException("Unexpected end of expression");
+        }
+        return expression.charAt(position);
+    }
+}
@@ -0,0 +1,136 @@
+package com.example.app.cipher;
+
+import java.util.Arrays;
+
+/**
+ * An ordered set of lowercase letters that a Caesar shift rotates through,
+ * with the relative letter frequencies of its language used to crack a shift.
+ * Case is handled by the registry: uppercase forms follow their lowercase letter.
+ *
+ * Alphabets are immutable; combine them with {@link AlphabetRegistry#of}.
+ */
+public final class Alphabet {
+    public static final Alphabet ENGLISH = of("english", "abcdefghijklmnopqrstuvwxyz",
+            8.167, 1.492, 2.782, 4.253, 12.702, 2.228, 2.015, 6.094, 6.966, 0.153, 0.772, 4.025, 2.406,
+            6.749, 7.507, 1.929, 0.095, 5.987, 6.327, 9.056, 2.758, 0.978, 2.360, 0.150, 1.974, 0.074);
+    public static final Alphabet RUSSIAN = of("russian", "абвгдеёжзийклмнопрстуфхцчшщъыьэюя",
+            8.01, 1.59, 4.54, 1.70, 2.98, 8.45, 0.04, 0.94, 1.65, 7.35, 1.21, 3.49, 4.40, 3.21, 6.70, 10.97,
+            2.81, 4.73, 5.47, 6.26, 2.62, 0.26, 0.97, 0.48, 1.44, 0.73, 0.36, 0.04, 1.90, 1.74, 0.32, 0.64, 2.01);
+    // overlaps RUSSIAN, so the two cannot share a registry
+    public static final Alphabet UKRAINIAN = of("ukrainian", "абвгґдеєжзиіїйклмнопрстуфхцчшщьюя",
+            8.04, 1.74, 4.56, 1.32, 0.01, 3.25, 4.87, 0.84, 0.91, 2.07, 6.12, 5.70, 0.91, 1.20, 3.59, 3.62,
+            3.04, 6.64, 9.37, 2.81, 4.73, 4.18, 5.25, 3.68, 0.12, 1.22, 0.96, 1.51, 0.79, 0.44, 2.41, 0.81, 2.89);
+    // overlaps ENGLISH, so the two cannot share a registry
+    public static final Alphabet GERMAN = of("german", "abcdefghijklmnopqrstuvwxyzäöüß",
+            6.51, 1.89, 3.06, 5.08, 17.40, 1.66, 3.01, 4.76, 7.55, 0.27, 1.21, 3.44, 2.53, 9.78, 2.51,
+            0.79, 0.02, 7.00, 7.27, 6.15, 4.35, 0.67, 1.89, 0.03, 0.04, 1.13, 0.54, 0.30, 0.65, 0.31);
+    // final sigma and accented vowels are not part of the rotation
+    public static final Alphabet GREEK = of("greek", "αβγδεζηθικλμνξοπρστυφχψω",
+            12.0, 0.8, 1.8, 1.8, 8.0, 0.5, 5.0, 1.3, 7.7, 4.2, 2.8, 3.5, 6.7, 0.5, 9.8, 4.2,
+            4.3, 7.9, 8.3, 4.0, 0.8, 1.2, 0.2, 1.9);
+
+    private final String name;
+    private final int[] letters;
+    // relative frequencies in letter order, summing to 1
+    final double[] frequencies;
+    private final int mostFrequent;
+
+    private Alphabet(String name, int[] letters, double[] frequencies) {
+        this.name = name;
+        this.letters = letters;
+        this.frequencies = frequencies;
+        int mostFrequent = 0;
+        for (int i = 1; i < frequencies.length; i++) {
+            if (frequencies[i] > frequencies[mostFrequent]) {
+                mostFrequent = i;
+            }
+        }
+        this.mostFrequent = mostFrequent;
+    }
+
+    /**
+     * letters are lowercase code points in shift order, supplementary ones included;
+     * frequencies are positive weights in the same order, e.g. percentages.
+     */
+    public static Alphabet of(String name, String letters, double... frequencies) {
+        if (name == null || name.isEmpty()) {
+            throw new IllegalArgumentException("Alphabet name cannot be empty");
+        }
+        int[] codePoints = letters.codePoints().toArray();
+        if (codePoints.length < 2) {
+            throw new IllegalArgumentException("Alphabet " + name + " needs at least two letters");
+        }
+        if (frequencies.length != codePoints.length) {
+            throw new IllegalArgumentException("Alphabet " + name + " has " + codePoints.length
+                    + " letters but " + frequencies.length + " frequencies");
+        }
+        int charCount = Character.charCount(codePoints[0]);
+        for (int i = 0; i < codePoints.length; i++) {
+            int letter = codePoints[i];
+            String shown = new String(Character.toChars(letter));
+            if (!Character.isLetter(letter) || Character.toLowerCase(letter) != letter) {
+                throw new IllegalArgumentException("Not a lowercase letter in " + name + ": " + shown);
+            }
+            // a shift must never change the length of the text
+            if (Character.charCount(letter) != charCount) {
+                throw new IllegalArgumentException("Alphabet " + name + " mixes BMP and supplementary letters");
+            }
+            for (int j = 0; j < i; j++) {
+                if (codePoints[j] == letter) {
+                    throw new IllegalArgumentException("Duplicate letter in " + name + ": " + shown);
+                }
+            }
+            if (!(frequencies[i] > 0)) {
+                throw new IllegalArgumentException("Frequency of " + shown + " in " + name + " must be positive");
+            }
+        }
+        return new Alphabet(name, codePoints, normalize(frequencies));
+    }
+
+    public String name() {
+        return name;
+    }
+
+    public int size() {
+        return letters.length;
+    }
+
+    public int letterAt(int index) {
+        return letters[index];
+    }
+
+    // position of a lowercase letter, -1 if it is not in the alphabet
+    public int indexOf(int letter) {
+        for (int i = 0; i < letters.length; i++) {
+            if (letters[i] == letter) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    public double frequency(int index) {
+        return frequencies[index];
+    }
+
+    public int mostFrequentLetter() {
+        return letters[mostFrequent];
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    private static double[] normalize(double[] weights) {
+        double sum = 0;
+        for (double weight : weights) {
+            sum += weight;
+        }
+        double[] normalized = Arrays.copyOf(weights, weights.length);
+        for (int i = 0; i < normalized.length; i++) {
+            normalized[i] /= sum;
+        }
+        return normalized;
+    }
+}
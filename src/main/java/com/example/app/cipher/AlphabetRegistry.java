@@ -0,0 +1,187 @@
+package com.example.app.cipher;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A fixed set of non-overlapping alphabets compiled into one code-point lookup.
+ *
+ * The lookup is a two-level page table over all of Unicode: the high bits of a
+ * code point pick a 256-entry page, the low bits the entry. Pages without any
+ * letter share one empty page, so the table stays small, and every lookup is two
+ * array loads however many alphabets are registered.
+ *
+ * A code point maps to its alphabet and position when it is a letter whose
+ * lowercase form is in an alphabet, which covers uppercase letters as well as
+ * oddities like the Kelvin sign for 'k'.
+ */
+public final class AlphabetRegistry {
+    static final int PAGE_BITS = 8;
+    static final int PAGE_MASK = (1 << PAGE_BITS) - 1;
+    private static final int[] EMPTY_PAGE = new int[1 << PAGE_BITS];
+    // registries whose shift cycle is longer than this do not cache shift tables
+    private static final int MAX_CACHED_SHIFTS = 1 << 16;
+    // Unicode has case mappings only in the BMP and the Supplementary Multilingual Plane
+    private static final int LAST_CASED_CODE_POINT = 0x1FFFF;
+    // after the constants above, which building it needs
+    public static final AlphabetRegistry DEFAULT = of(Alphabet.ENGLISH, Alphabet.RUSSIAN);
+
+    private final Alphabet[] alphabets;
+    // entry: (alphabet + 1) << 16 | position, 0 for anything that is not a registered letter
+    final int[][] pages;
+    // BMP pages where a shift may change something: registered letters or letters that lowercase
+    final boolean[] shiftedPages = new boolean[(Character.MAX_VALUE + 1) >>> PAGE_BITS];
+    private final boolean supplementary;
+    // shifting every alphabet by a multiple of this is a no-op; 0 if above MAX_CACHED_SHIFTS
+    private final int cycle;
+    private final AtomicReferenceArray<ShiftTable> tables;
+
+    private AlphabetRegistry(Alphabet[] alphabets) {
+        this.alphabets = alphabets;
+        this.pages = new int[(Character.MAX_CODE_POINT + 1) >>> PAGE_BITS][];
+        Arrays.fill(pages, EMPTY_PAGE);
+
+        boolean supplementary = false;
+        long cycle = 1;
+        for (int a = 0; a < alphabets.length; a++) {
+            Alphabet alphabet = alphabets[a];
+            for (int i = 0; i < alphabet.size(); i++) {
+                int letter = alphabet.letterAt(i);
+                int existing = lookup(letter);
+                if (existing != 0) {
+                    throw new IllegalArgumentException("Letter " + new String(Character.toChars(letter)) + " is in both "
+                            + alphabets[alphabetIndexOf(existing)].name() + " and " + alphabet.name());
+                }
+                set(letter, (a + 1) << 16 | i);
+                supplementary |= Character.isSupplementaryCodePoint(letter);
+            }
+            if (cycle != 0) {
+                cycle = lcm(cycle, alphabet.size());
+                cycle = cycle > MAX_CACHED_SHIFTS ? 0 : cycle;
+            }
+        }
+        // every other letter that lowercases into an alphabet: uppercase forms and a few oddities
+        for (int codePoint = 0; codePoint <= LAST_CASED_CODE_POINT; codePoint++) {
+            int lower = Character.toLowerCase(codePoint);
+            if (lower == codePoint || !Character.isLetter(codePoint)) {
+                continue;
+            }
+            if (Character.isBmpCodePoint(codePoint)) {
+                shiftedPages[codePoint >>> PAGE_BITS] = true;
+            }
+            if (lookup(lower) != 0 && lookup(codePoint) == 0) {
+                set(codePoint, lookup(lower));
+                supplementary |= Character.isSupplementaryCodePoint(codePoint);
+            }
+        }
+        this.supplementary = supplementary;
+        this.cycle = (int) cycle;
+        this.tables = cycle == 0 ? null : new AtomicReferenceArray<>(this.cycle);
+    }
+
+    public static AlphabetRegistry of(Alphabet... alphabets) {
+        if (alphabets.length == 0 || alphabets.length > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("A registry needs between 1 and " + Short.MAX_VALUE + " alphabets");
+        }
+        return new AlphabetRegistry(alphabets.clone());
+    }
+
+    public List<Alphabet> alphabets() {
+        return List.of(alphabets);
+    }
+
+    // null if there is no alphabet with that name
+    public Alphabet alphabet(String name) {
+        for (Alphabet alphabet : alphabets) {
+            if (alphabet.name().equals(name)) {
+                return alphabet;
+            }
+        }
+        return null;
+    }
+
+    // null if the code point is not a letter of any alphabet, in either case
+    public Alphabet alphabetOf(int codePoint) {
+        int entry = lookup(codePoint);
+        return entry == 0 ? null : alphabets[alphabetIndexOf(entry)];
+    }
+
+    // position in its alphabet, -1 if the code point is not a letter of any alphabet
+    public int indexOf(int codePoint) {
+        int entry = lookup(codePoint);
+        return entry == 0 ? -1 : positionOf(entry);
+    }
+
+    int size() {
+        return alphabets.length;
+    }
+
+    Alphabet get(int alphabet) {
+        return alphabets[alphabet];
+    }
+
+    // whether any letter is outside the BMP, so text must be read as surrogate pairs
+    boolean hasSupplementaryLetters() {
+        return supplementary;
+    }
+
+    int lookup(int codePoint) {
+        if (codePoint < 0 || codePoint > Character.MAX_CODE_POINT) {
+            return 0;
+        }
+        return pages[codePoint >>> PAGE_BITS][codePoint & PAGE_MASK];
+    }
+
+    static int alphabetIndexOf(int entry) {
+        return (entry >>> 16) - 1;
+    }
+
+    static int positionOf(int entry) {
+        return entry & 0xFFFF;
+    }
+
+    // the same shift for every alphabet
+    ShiftTable table(int shift) {
+        if (tables == null) {
+            return ShiftTable.of(this, uniformShifts(shift));
+        }
+        int normalized = Math.floorMod(shift, cycle);
+        ShiftTable cached = tables.get(normalized);
+        if (cached == null) {
+            cached = ShiftTable.of(this, uniformShifts(normalized));
+            if (!tables.compareAndSet(normalized, null, cached)) {
+                cached = tables.get(normalized);
+            }
+        }
+        return cached;
+    }
+
+    private int[] uniformShifts(int shift) {
+        int[] shifts = new int[alphabets.length];
+        Arrays.fill(shifts, shift);
+        return shifts;
+    }
+
+    private void set(int codePoint, int entry) {
+        int page = codePoint >>> PAGE_BITS;
+        if (pages[page] == EMPTY_PAGE) {
+            pages[page] = new int[1 << PAGE_BITS];
+        }
+        pages[page][codePoint & PAGE_MASK] = entry;
+        if (page < shiftedPages.length) {
+            shiftedPages[page] = true;
+        }
+    }
+
+    private static long lcm(long a, long b) {
+        long x = a;
+        long y = b;
+        while (y != 0) {
+            long t = x % y;
+            x = y;
+            y = t;
+        }
+        return a / x * b;
+    }
+}
@@ -1,61 +1,89 @@
 package com.example.app.cipher;
 
 import com.example.app.exception.CipherException;
+import com.example.app.metrics.Metrics;
+import com.example.app.metrics.OperationMetrics;
 
 import static com.example.app.util.MenuChoiceHandler.*;
 
 import java.io.*;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 public class CaesarCipher {
-    private static final String ENGLISH_ALPHABET = "abcdefghijklmnopqrstuvwxyz";
-    private static final String RUSSIAN_ALPHABET = "абвгдеёжзийклмнопрстуфхцчшщъыьэюя";
-    // Most frequent letters in English and Russian
-    private static final char MOST_FREQUENT_ENGLISH = 'e';
-    private static final char MOST_FREQUENT_RUSSIAN = 'о';
+    // chars per read/write round when streaming files
+    private static final int FILE_BUFFER_SIZE = 1 << 16;
+    // inputs shorter than this are always translated on the calling thread
+    static final int PARALLEL_THRESHOLD = 1 << 18;
+    private static final int PARALLEL_FILE_BUFFER_SIZE = 1 << 22;
+    // choices offered when the shift cannot be told without asking
+    private static final int ALTERNATIVES = 3;
+
+    private static final OperationMetrics ENCRYPT_METRICS = Metrics.operation("cipher.encrypt");
+    private static final OperationMetrics DECRYPT_METRICS = Metrics.operation("cipher.decrypt");
+    private static final OperationMetrics CRACK_METRICS = Metrics.operation("cipher.crack");
+    private static final OperationMetrics DICTIONARY_CRACK_METRICS = Metrics.operation("cipher.crackWithDictionary");
+
+    private final AlphabetRegistry registry;
+    private final ForkJoinPool pool;
+    // created on first use, loading the word lists is not free
+    private volatile DictionaryVerifier verifier;
+
+    public CaesarCipher() {
+        this(null);
+    }
+
+    // With a pool, inputs of PARALLEL_THRESHOLD chars and more are split into chunks
+    // and translated on it; pass null for the plain single-threaded cipher.
+    public CaesarCipher(ForkJoinPool pool) {
+        this(AlphabetRegistry.DEFAULT, pool);
+    }
+
+    // Shifts the letters of every alphabet in the registry; the default is English and Russian.
+    public CaesarCipher(AlphabetRegistry registry, ForkJoinPool pool) {
+        this.registry = registry;
+        this.pool = pool;
+    }
+
+    public AlphabetRegistry registry() {
+        return registry;
+    }
 
     public String encrypt(String text, int shift) {
-        return process(text, shift);
+        return process(text, registry.table(shift), ENCRYPT_METRICS);
     }
 
     public String decrypt(String text, int shift) {
-        return process(text, -shift);
+        return process(text, registry.table(-shift), DECRYPT_METRICS);
     }
 
-    public String decryptWithoutShift(String text, Scanner scanner) {
-        if (text == null || text.isEmpty()) {
-            throw new CipherException("Input text cannot be empty");
-        }
+    // A separate shift per alphabet; alphabets missing from the map are left as they are.
+    public String encrypt(String text, Map<Alphabet, Integer> shifts) {
+        return process(text, table(shifts, 1), ENCRYPT_METRICS);
+    }
 
-        // Determine if the text is primarily English or Russian
-        boolean isEnglish = isEnglishText(text);
-        
-        // Count letter frequencies
-        Map<Character, Integer> frequencies = calculateFrequencies(text.toLowerCase());
-        if (frequencies.isEmpty()) {
-            throw new CipherException("No letters found in the text");
-        }
+    public String decrypt(String text, Map<Alphabet, Integer> shifts) {
+        return process(text, table(shifts, -1), DECRYPT_METRICS);
+    }
 
-        // Find the most frequent letter in the text
-        char mostFrequent = findMostFrequentLetter(frequencies);
-        
-        // Calculate the required shift
-        int shift;
-        if (isEnglish) {
-            shift = calculateShift(mostFrequent, MOST_FREQUENT_ENGLISH, ENGLISH_ALPHABET);
-        } else {
-            shift = calculateShift(mostFrequent, MOST_FREQUENT_RUSSIAN, RUSSIAN_ALPHABET);
+    // Asks only when the dictionary words leave doubt, see acceptWithDictionary.
+    public String decryptWithoutShift(String text, Scanner scanner) {
+        ShiftCandidate accepted = acceptWithDictionary(text);
+        if (accepted != null) {
+            System.out.printf("%nDecrypted with shift %d, %.0f%% of the letters form dictionary words%n",
+                    accepted.shift(), (1 - accepted.score()) * 100);
+            return accepted.plaintext();
         }
 
+        // shifts making dictionary words first, then the best letter frequencies;
+        // an alphabet of fewer letters has fewer shifts to offer
         List<String> alternatives = new ArrayList<>();
-        // Try the most likely shift
-        alternatives.add(decrypt(text, shift));
-
-        // Also get the next two most likely alternatives
-        alternatives.add(decrypt(text, (shift + 1) % (isEnglish ? 26 : 33)));
-        alternatives.add(decrypt(text, (shift - 1 + (isEnglish ? 26 : 33)) % (isEnglish ? 26 : 33)));
+        addAlternatives(alternatives, verifier().rank(text, ALTERNATIVES));
+        addAlternatives(alternatives, crack(text, ALTERNATIVES));
 
         // Let user choose from alternatives
         System.out.println("\nPossible decryptions (most likely first):");
@@ -63,101 +91,321 @@ public class CaesarCipher {
             System.out.printf("%d: %s%n", i + 1, alternatives.get(i));
         }
 
-        int choice = getNumChoice(scanner, 3);
+        int choice = getNumChoice(scanner, alternatives.size());
 
         return alternatives.get(choice - 1);
     }
 
+    private static void addAlternatives(List<String> alternatives, List<ShiftCandidate> candidates) {
+        for (ShiftCandidate candidate : candidates) {
+            if (alternatives.size() == ALTERNATIVES || candidate.plaintext() == null) {
+                return;
+            }
+            if (!alternatives.contains(candidate.plaintext())) {
+                alternatives.add(candidate.plaintext());
+            }
+        }
+    }
+
+    public List<ShiftCandidate> crack(String text) {
+        return crack(text, 1);
+    }
+
+    /**
+     * Ranks every shift of the text's dominant alphabet by how well the letter
+     * frequencies match the language, best first, without any prompt.
+     * Only the top {@code decrypted} candidates carry a plaintext.
+     */
+    public List<ShiftCandidate> crack(String text, int decrypted) {
+        long start = CRACK_METRICS.start();
+        try {
+            List<ShiftCandidate> candidates = rank(text, decrypted);
+            CRACK_METRICS.success(start, text.length());
+            return candidates;
+        } catch (RuntimeException e) {
+            CRACK_METRICS.failure(start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * Picks the shift of a short text by dictionary words rather than letter
+     * frequencies, see {@link DictionaryVerifier#verify}. Null if no shift
+     * produces a dictionary word.
+     */
+    public ShiftCandidate crackWithDictionary(String text) {
+        DictionaryVerifier verifier = verifier();
+        long start = DICTIONARY_CRACK_METRICS.start();
+        try {
+            ShiftCandidate candidate = verifier.verify(text);
+            DICTIONARY_CRACK_METRICS.success(start, text.length());
+            return candidate;
+        } catch (RuntimeException e) {
+            DICTIONARY_CRACK_METRICS.failure(start, e);
+            throw e;
+        }
+    }
+
+    /**
+     * The shift picked by dictionary words only when they leave no real doubt,
+     * see {@link DictionaryVerifier#accept}, else null. This is the threshold at
+     * which the shift of a short text is taken without asking.
+     */
+    public ShiftCandidate acceptWithDictionary(String text) {
+        DictionaryVerifier verifier = verifier();
+        long start = DICTIONARY_CRACK_METRICS.start();
+        try {
+            ShiftCandidate candidate = verifier.accept(text);
+            DICTIONARY_CRACK_METRICS.success(start, text.length());
+            return candidate;
+        } catch (RuntimeException e) {
+            DICTIONARY_CRACK_METRICS.failure(start, e);
+            throw e;
+        }
+    }
+
+    private DictionaryVerifier verifier() {
+        DictionaryVerifier verifier = this.verifier;
+        if (verifier == null) {
+            verifier = new DictionaryVerifier(registry);
+            this.verifier = verifier;
+        }
+        return verifier;
+    }
+
+    /**
+     * Decrypts a stream whose shift is unknown. Only the text read before a
+     * ShiftDetector locks onto the shift is held in memory, the rest streams through.
+     * If it never locks, the whole text was short enough to hold and is decrypted
+     * with the shift {@link #acceptWithDictionary} picks, or failing that with the
+     * final frequency estimate. Returns the estimate the text was decrypted with.
+     */
+    public ShiftEstimate crack(Reader in, Writer out) throws IOException {
+        ShiftDetector detector = new ShiftDetector(registry, ShiftDetector.DEFAULT_LOCK_THRESHOLD);
+        PushbackReader reader = new PushbackReader(in, 1);
+        StringBuilder held = new StringBuilder();
+        char[] buffer = new char[FILE_BUFFER_SIZE];
+        int read;
+        while (!detector.isLocked() && (read = reader.read(buffer)) != -1) {
+            detector.update(CharBuffer.wrap(buffer, 0, read));
+            held.append(buffer, 0, read);
+        }
+        ShiftEstimate estimate = detector.isLocked() ? detector.locked().join() : detector.estimate();
+        if (estimate == null) {
+            throw new CipherException(held.length() == 0 ? "Input text cannot be empty" : "No letters found in the text");
+        }
+        if (!detector.isLocked()) {
+            // too few letters for the frequencies to be sure, dictionary words decide instead
+            ShiftCandidate accepted = acceptWithDictionary(held.toString());
+            if (accepted != null) {
+                estimate = new ShiftEstimate(accepted.alphabet(), accepted.shift(), 1 - accepted.score(),
+                        estimate.letters());
+            }
+        }
+
+        // keep a surrogate pair together for the streaming part
+        int end = held.length();
+        if (end > 0 && Character.isHighSurrogate(held.charAt(end - 1))) {
+            reader.unread(held.charAt(--end));
+        }
+        ShiftTable table = registry.table(-estimate.shift());
+        char[] chars = new char[end];
+        held.getChars(0, end, chars, 0);
+        translate(table, chars, end);
+        out.write(chars, 0, end);
+        processStream(reader, out, -estimate.shift());
+        return estimate;
+    }
+
+    /**
+     * Cracks text that mixes alphabets, each possibly encrypted with its own shift.
+     * One pass counts the letters of every alphabet, each alphabet's shift is solved
+     * on its own counts, and a second pass decrypts through one combined table.
+     */
+    public MixedCrack crackMixed(String text) {
+        if (text == null || text.isEmpty()) {
+            throw new CipherException("Input text cannot be empty");
+        }
+
+        LetterHistogram histogram = LetterHistogram.of(registry, text);
+        if (histogram.total() == 0) {
+            throw new CipherException("No letters found in the text");
+        }
+
+        List<ShiftCandidate> best = new ArrayList<>();
+        int[] shifts = new int[registry.size()];
+        for (int a = 0; a < shifts.length; a++) {
+            if (histogram.totals[a] > 0) {
+                ShiftCandidate candidate = ShiftScorer.rank(histogram, a).get(0);
+                best.add(candidate);
+                shifts[a] = -candidate.shift();
+            }
+        }
+        return new MixedCrack(List.copyOf(best), process(text, ShiftTable.of(registry, shifts)));
+    }
+
     public String encryptFromFile(String filePath, int shift) throws IOException {
         String content = Files.readString(Paths.get(filePath), StandardCharsets.UTF_8);
         return encrypt(content, shift);
     }
 
-    private String process(String text, int shift) {
-        if (text == null || text.isEmpty()) {
+    /**
+     * Encrypts a UTF-8 file into another one through a fixed-size buffer,
+     * so memory use does not depend on the file size.
+     */
+    public void encryptFile(Path in, Path out, int shift) throws IOException {
+        processFile(in, out, shift);
+    }
+
+    public void decryptFile(Path in, Path out, int shift) throws IOException {
+        processFile(in, out, -shift);
+    }
+
+    /**
+     * Streams text from the reader to the writer in fixed-size rounds, e.g. stdin to stdout.
+     * Neither is closed; returns the number of chars written.
+     */
+    public long encrypt(Reader in, Writer out, int shift) throws IOException {
+        return processStream(in, out, shift);
+    }
+
+    public long decrypt(Reader in, Writer out, int shift) throws IOException {
+        return processStream(in, out, -shift);
+    }
+
+    /**
+     * Encrypts a file in a single-byte encoding (US-ASCII, KOI8-R, Windows-1251) by
+     * memory-mapping it and rewriting bytes through a 256-entry table, without decoding.
+     * The encoding is detected from the whole input; out may be the same
+     * file as in, which is then rewritten in place.
+     */
+    public void encryptMappedFile(Path in, Path out, int shift) throws IOException {
+        MappedFileTranslator.translate(in, out, registry.table(shift), null);
+    }
+
+    public void encryptMappedFile(Path in, Path out, int shift, Charset charset) throws IOException {
+        MappedFileTranslator.translate(in, out, registry.table(shift), charset);
+    }
+
+    public void decryptMappedFile(Path in, Path out, int shift) throws IOException {
+        MappedFileTranslator.translate(in, out, registry.table(-shift), null);
+    }
+
+    public void decryptMappedFile(Path in, Path out, int shift, Charset charset) throws IOException {
+        MappedFileTranslator.translate(in, out, registry.table(-shift), charset);
+    }
+
+    // in and out may be the same file: the result is then written next to it and moved over it
+    private void processFile(Path in, Path out, int shift) throws IOException {
+        if (Files.size(in) == 0) {
             throw new CipherException("Input text cannot be empty");
         }
 
-        StringBuilder result = new StringBuilder();
-        
-        for (char ch : text.toCharArray()) {
-            result.append(shiftChar(ch, shift));
+        boolean inPlace = Files.exists(out) && Files.isSameFile(in, out);
+        Path target = inPlace ? Files.createTempFile(out.toAbsolutePath().getParent(), ".caesar", ".tmp") : out;
+        try {
+            try (Reader reader = Files.newBufferedReader(in, StandardCharsets.UTF_8);
+                 Writer writer = Files.newBufferedWriter(target, StandardCharsets.UTF_8)) {
+                processStream(reader, writer, shift);
+            }
+            if (inPlace) {
+                Files.move(target, out, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } finally {
+            if (inPlace) {
+                Files.deleteIfExists(target);
+            }
         }
-        
-        return result.toString();
     }
 
-    private char shiftChar(char ch, int shift) {
-        if (!Character.isLetter(ch)) {
-            return ch;
+    private long processStream(Reader reader, Writer writer, int shift) throws IOException {
+        ShiftTable table = registry.table(shift);
+        char[] buffer = new char[pool != null ? PARALLEL_FILE_BUFFER_SIZE : FILE_BUFFER_SIZE];
+        long total = 0;
+        int pending = 0;
+        int read;
+        while ((read = reader.read(buffer, pending, buffer.length - pending)) != -1) {
+            int end = pending + read;
+            // hold back a trailing high surrogate so a pair is never split between two rounds
+            int ready = end > 0 && Character.isHighSurrogate(buffer[end - 1]) ? end - 1 : end;
+            translate(table, buffer, ready);
+            writer.write(buffer, 0, ready);
+            total += ready;
+            pending = end - ready;
+            if (pending > 0) {
+                buffer[0] = buffer[end - 1];
+            }
+        }
+        if (pending > 0) {
+            table.translate(buffer, 0, pending, buffer, 0);
+            writer.write(buffer, 0, pending);
+            total += pending;
         }
+        writer.flush();
+        return total;
+    }
 
-        String alphabet;
-        int index;
-        boolean isUpperCase = Character.isUpperCase(ch);
-        ch = Character.toLowerCase(ch);
+    private String process(String text, ShiftTable table, OperationMetrics metrics) {
+        long start = metrics.start();
+        try {
+            String result = process(text, table);
+            metrics.success(start, text.length());
+            return result;
+        } catch (RuntimeException e) {
+            metrics.failure(start, e);
+            throw e;
+        }
+    }
 
-        if (ENGLISH_ALPHABET.indexOf(ch) != -1) {
-            alphabet = ENGLISH_ALPHABET;
-            index = ENGLISH_ALPHABET.indexOf(ch);
-        } else if (RUSSIAN_ALPHABET.indexOf(ch) != -1) {
-            alphabet = RUSSIAN_ALPHABET;
-            index = RUSSIAN_ALPHABET.indexOf(ch);
-        } else {
-            return ch;
+    private List<ShiftCandidate> rank(String text, int decrypted) {
+        if (text == null || text.isEmpty()) {
+            throw new CipherException("Input text cannot be empty");
         }
 
-        // Handle wrap-around with modulo
-        int length = alphabet.length();
-        int newIndex = (index + shift) % length;
-        if (newIndex < 0) {
-            newIndex += length;
+        // Count letters of both alphabets in one pass, stopping once the sample is clear enough
+        LetterHistogram histogram = LetterHistogram.sample(registry, text);
+        if (histogram.total() == 0) {
+            throw new CipherException("No letters found in the text");
         }
 
-        char shiftedChar = alphabet.charAt(newIndex);
-        return isUpperCase ? Character.toUpperCase(shiftedChar) : shiftedChar;
+        List<ShiftCandidate> candidates = ShiftScorer.rank(histogram);
+        for (int i = 0; i < Math.min(decrypted, candidates.size()); i++) {
+            ShiftCandidate candidate = candidates.get(i);
+            candidates.set(i, candidate.withPlaintext(process(text, registry.table(-candidate.shift()))));
+        }
+        return candidates;
     }
 
-    private boolean isEnglishText(String text) {
-        int englishCount = 0;
-        int russianCount = 0;
-        
-        for (char c : text.toLowerCase().toCharArray()) {
-            if (ENGLISH_ALPHABET.indexOf(c) != -1) {
-                englishCount++;
-            } else if (RUSSIAN_ALPHABET.indexOf(c) != -1) {
-                russianCount++;
-            }
+    private String process(String text, ShiftTable table) {
+        if (text == null || text.isEmpty()) {
+            throw new CipherException("Input text cannot be empty");
+        }
+        if (pool == null || text.length() < PARALLEL_THRESHOLD) {
+            return table.translate(text);
         }
-        
-        return englishCount >= russianCount;
+        char[] result = new char[text.length()];
+        pool.invoke(ParallelTranslateTask.of(table, text, result));
+        return new String(result);
     }
 
-    private Map<Character, Integer> calculateFrequencies(String text) {
-        Map<Character, Integer> frequencies = new HashMap<>();
-        
-        for (char c : text.toCharArray()) {
-            if (Character.isLetter(c)) {
-                frequencies.merge(c, 1, Integer::sum);
+    // direction is 1 to encrypt, -1 to decrypt
+    private ShiftTable table(Map<Alphabet, Integer> shifts, int direction) {
+        int[] perAlphabet = new int[registry.size()];
+        for (Map.Entry<Alphabet, Integer> entry : shifts.entrySet()) {
+            int index = registry.alphabets().indexOf(entry.getKey());
+            if (index == -1) {
+                throw new CipherException("Alphabet is not registered: " + entry.getKey().name());
             }
+            perAlphabet[index] = direction * entry.getValue();
         }
-        
-        return frequencies;
+        return ShiftTable.of(registry, perAlphabet);
     }
 
-    private char findMostFrequentLetter(Map<Character, Integer> frequencies) {
-        return frequencies.entrySet().stream()
-                .max(Map.Entry.comparingByValue())
-                .map(Map.Entry::getKey)
-                .orElseThrow(() -> new CipherException("No letters found in text"));
-    }
-
-    private int calculateShift(char mostFrequent, char expectedMostFrequent, String alphabet) {
-        int currentPos = alphabet.indexOf(Character.toLowerCase(mostFrequent));
-        int expectedPos = alphabet.indexOf(Character.toLowerCase(expectedMostFrequent));
-        if (currentPos == -1 || expectedPos == -1) {
-            throw new CipherException("Invalid character in frequency analysis");
+    private void translate(ShiftTable table, char[] buffer, int length) {
+        if (pool == null || length < PARALLEL_THRESHOLD) {
+            table.translate(buffer, 0, length, buffer, 0);
+        } else {
+            pool.invoke(ParallelTranslateTask.of(table, buffer, length));
         }
-        return (currentPos - expectedPos + alphabet.length()) % alphabet.length();
     }
 }
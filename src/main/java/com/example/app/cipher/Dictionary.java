@@ -0,0 +1,213 @@
+package com.example.app.cipher;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A set of words of one alphabet, kept as 64-bit fingerprints of their letter
+ * positions in an open-addressing table. A lookup hashes the letter positions and
+ * probes a long array, no strings are kept or compared.
+ *
+ * Bundled word lists live next to this class under {@code words/<alphabet>.txt},
+ * one lowercase word per line, and are loaded once on first use.
+ */
+public final class Dictionary {
+    // longer words are not stored, a verifier can skip them without hashing
+    static final int MAX_WORD_LENGTH = 32;
+
+    private static final String RESOURCE_DIRECTORY = "words/";
+    private static final Map<String, Dictionary> BUNDLED = new ConcurrentHashMap<>();
+    // stands in for "no bundled list", the map cannot hold null
+    private static final Dictionary NONE = new Dictionary(null, new long[2], 0, 0, new long[0]);
+
+    static final long SEED = 0x9E3779B97F4A7C15L;
+    private static final long MULTIPLIER = 0xBF58476D1CE4E5B9L;
+
+    private final Alphabet alphabet;
+    // fingerprints, 0 marks a free slot
+    private final long[] table;
+    private final int size;
+    // bit n is set if some word has n letters
+    private final long lengths;
+    // at length * letters + gap, bit f is set if some word of that length starts with
+    // letter f followed by letter f + gap, a one-letter word counting as gap 0
+    private final long[] starts;
+
+    private Dictionary(Alphabet alphabet, long[] table, int size, long lengths, long[] starts) {
+        this.alphabet = alphabet;
+        this.table = table;
+        this.size = size;
+        this.lengths = lengths;
+        this.starts = starts;
+    }
+
+    /**
+     * Words made only of the alphabet's letters, in either case; others are skipped.
+     * The alphabet may have at most 64 letters.
+     */
+    public static Dictionary of(Alphabet alphabet, Collection<String> words) {
+        int letters = alphabet.size();
+        if (letters > Long.SIZE) {
+            throw new IllegalArgumentException("Alphabet " + alphabet.name() + " has more than 64 letters");
+        }
+        List<int[]> accepted = new ArrayList<>(words.size());
+        for (String word : words) {
+            int[] positions = positions(alphabet, word);
+            if (positions != null) {
+                accepted.add(positions);
+            }
+        }
+
+        // at most half full, so a miss ends after a probe or two
+        long[] table = new long[Math.max(2, Integer.highestOneBit(Math.max(1, accepted.size())) << 2)];
+        int size = 0;
+        long lengths = 0;
+        long[] starts = new long[(MAX_WORD_LENGTH + 1) * letters];
+        for (int[] positions : accepted) {
+            long fingerprint = SEED;
+            for (int position : positions) {
+                fingerprint = step(fingerprint, position);
+            }
+            fingerprint = finish(fingerprint, positions.length);
+            if (insert(table, fingerprint)) {
+                size++;
+                lengths |= 1L << positions.length;
+                int first = positions[0];
+                int gap = positions.length > 1 ? Math.floorMod(positions[1] - first, letters) : 0;
+                starts[positions.length * letters + gap] |= 1L << first;
+            }
+        }
+        return new Dictionary(alphabet, table, size, lengths, starts);
+    }
+
+    public static Dictionary load(Alphabet alphabet, InputStream in) throws IOException {
+        List<String> words = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.strip();
+            if (!line.isEmpty()) {
+                words.add(line);
+            }
+        }
+        return of(alphabet, words);
+    }
+
+    // the word list bundled for the alphabet's name, null if there is none
+    public static Dictionary bundled(Alphabet alphabet) {
+        Dictionary dictionary = BUNDLED.computeIfAbsent(alphabet.name(), name -> {
+            try (InputStream in = Dictionary.class.getResourceAsStream(RESOURCE_DIRECTORY + name + ".txt")) {
+                return in == null ? NONE : load(alphabet, in);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot read the word list for " + name, e);
+            }
+        });
+        // the cache is keyed by name, a custom alphabet reusing one must not get its words
+        return dictionary == NONE || dictionary.alphabet != alphabet ? null : dictionary;
+    }
+
+    public Alphabet alphabet() {
+        return alphabet;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean contains(CharSequence word) {
+        int[] positions = positions(alphabet, word);
+        if (positions == null) {
+            return false;
+        }
+        long fingerprint = SEED;
+        for (int position : positions) {
+            fingerprint = step(fingerprint, position);
+        }
+        return hasLength(positions.length) && containsFingerprint(finish(fingerprint, positions.length));
+    }
+
+    boolean hasLength(int length) {
+        return length <= MAX_WORD_LENGTH && (lengths & 1L << length) != 0;
+    }
+
+    /**
+     * For a word of the length starting with the two letter positions, bit s is set
+     * if moving every letter forward by s could make it a dictionary word, judging
+     * by its first two letters only. A one-letter word passes its letter twice.
+     */
+    long candidateShifts(int length, int first, int second) {
+        int letters = alphabet.size();
+        int gap = second - first;
+        long firsts = starts[length * letters + (gap < 0 ? gap + letters : gap)];
+        if (first == 0) {
+            return firsts;
+        }
+        // bit f of firsts becomes bit f - first, wrapping around the alphabet
+        long all = letters == Long.SIZE ? -1L : (1L << letters) - 1;
+        return (firsts >>> first | firsts << (letters - first)) & all;
+    }
+
+    boolean containsFingerprint(long fingerprint) {
+        long[] table = this.table;
+        int mask = table.length - 1;
+        for (int slot = (int) (fingerprint >>> 32) & mask; ; slot = (slot + 1) & mask) {
+            long stored = table[slot];
+            if (stored == fingerprint) {
+                return true;
+            }
+            if (stored == 0) {
+                return false;
+            }
+        }
+    }
+
+    // A word's fingerprint is finish(step(...step(SEED, p0)..., pn), n) over its letter positions.
+    static long step(long fingerprint, int position) {
+        return (fingerprint ^ position) * MULTIPLIER;
+    }
+
+    static long finish(long fingerprint, int length) {
+        long h = fingerprint ^ length;
+        h = (h ^ (h >>> 31)) * 0x94D049BB133111EBL;
+        h ^= h >>> 29;
+        return h == 0 ? 1 : h;
+    }
+
+    private static boolean insert(long[] table, long fingerprint) {
+        int mask = table.length - 1;
+        for (int slot = (int) (fingerprint >>> 32) & mask; ; slot = (slot + 1) & mask) {
+            if (table[slot] == fingerprint) {
+                return false;
+            }
+            if (table[slot] == 0) {
+                table[slot] = fingerprint;
+                return true;
+            }
+        }
+    }
+
+    // letter positions of the word, null if it is empty, too long or has a non-letter
+    private static int[] positions(Alphabet alphabet, CharSequence word) {
+        int[] codePoints = word.codePoints().toArray();
+        if (codePoints.length == 0 || codePoints.length > MAX_WORD_LENGTH) {
+            return null;
+        }
+        int[] positions = new int[codePoints.length];
+        for (int i = 0; i < codePoints.length; i++) {
+            positions[i] = alphabet.indexOf(Character.toLowerCase(codePoints[i]));
+            if (positions[i] < 0) {
+                return null;
+            }
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,323 @@
+package com.example.app.cipher;
+
+import com.example.app.exception.CipherException;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+import static com.example.app.cipher.AlphabetRegistry.PAGE_BITS;
+import static com.example.app.cipher.AlphabetRegistry.PAGE_MASK;
+
+/**
+ * Picks the shift of a short ciphertext by counting dictionary words, where
+ * letter frequencies are too noisy to decide. Every shift of every alphabet
+ * with a dictionary is tried in one pass over the text, and a word
+ * is only hashed and looked up under the shifts that give it the length and
+ * first two letters of some dictionary word.
+ */
+public final class DictionaryVerifier {
+    // words between two checks of whether one shift already leads clearly
+    private static final int CHECK_INTERVAL = 8;
+    // letters the leading shift must cover, and how many times the runner-up's, to stop early
+    private static final int MIN_LEAD_LETTERS = 24;
+    private static final int LEAD_FACTOR = 3;
+    // what accept needs of the best shift before it is taken without asking
+    static final int MIN_ACCEPT_WORDS = 2;
+    static final int MIN_ACCEPT_LETTERS = 6;
+    static final double ACCEPT_SCORE = 0.5;
+    static final int ACCEPT_LEAD_FACTOR = 2;
+
+    private final AlphabetRegistry registry;
+    // per alphabet, in registry order; null where there is no word list
+    private final Dictionary[] dictionaries;
+
+    // the bundled word lists of the registry's alphabets
+    public DictionaryVerifier(AlphabetRegistry registry) {
+        this.registry = registry;
+        this.dictionaries = new Dictionary[registry.size()];
+        for (int a = 0; a < dictionaries.length; a++) {
+            dictionaries[a] = Dictionary.bundled(registry.get(a));
+        }
+    }
+
+    public DictionaryVerifier(AlphabetRegistry registry, Dictionary... dictionaries) {
+        this.registry = registry;
+        this.dictionaries = new Dictionary[registry.size()];
+        for (Dictionary dictionary : dictionaries) {
+            int a = registry.alphabets().indexOf(dictionary.alphabet());
+            if (a < 0) {
+                throw new IllegalArgumentException("Alphabet is not registered: " + dictionary.alphabet().name());
+            }
+            this.dictionaries[a] = dictionary;
+        }
+    }
+
+    /**
+     * The shift whose decryption covers the most letters with dictionary words,
+     * ties going to the better letter frequencies, with its plaintext. The score
+     * is the share of that alphabet's letters outside dictionary words, lower is
+     * better. Longer texts stop once one shift leads clearly, the score then counts
+     * the words looked at. Returns null if no shift makes a single dictionary word.
+     */
+    public ShiftCandidate verify(String text) {
+        Tally tally = tally(text);
+        return tally.bestAlphabet < 0 ? null : candidate(text, tally, tally.bestAlphabet, tally.bestMove, true);
+    }
+
+    /**
+     * The shift of {@link #verify} only when the words leave no real doubt, else
+     * null. It must cover at least MIN_ACCEPT_WORDS words and MIN_ACCEPT_LETTERS
+     * letters, at most ACCEPT_SCORE of its alphabet's letters may be left out, and
+     * it must cover ACCEPT_LEAD_FACTOR times the letters of any other shift of its
+     * alphabet. One short word fits several shifts ("Hi" also reads "No"), so it is
+     * never enough.
+     */
+    public ShiftCandidate accept(String text) {
+        Tally tally = tally(text);
+        int a = tally.bestAlphabet;
+        if (a < 0) {
+            return null;
+        }
+        int best = tally.covered[a][tally.bestMove];
+        if (tally.matched[a][tally.bestMove] < MIN_ACCEPT_WORDS || best < MIN_ACCEPT_LETTERS
+                || best < ACCEPT_LEAD_FACTOR * tally.runnerUp()) {
+            return null;
+        }
+        ShiftCandidate candidate = candidate(text, tally, a, tally.bestMove, true);
+        return candidate.score() <= ACCEPT_SCORE ? candidate : null;
+    }
+
+    /**
+     * Every shift that makes at least one dictionary word, ordered as {@link #verify}
+     * picks them. Only the top {@code decrypted} candidates carry a plaintext.
+     */
+    public List<ShiftCandidate> rank(String text, int decrypted) {
+        Tally tally = tally(text);
+        List<Match> matches = new ArrayList<>();
+        for (int a = 0; a < tally.covered.length; a++) {
+            if (tally.covered[a] == null) {
+                continue;
+            }
+            for (int s = 0; s < tally.covered[a].length; s++) {
+                int hits = tally.covered[a][s];
+                if (hits > 0) {
+                    matches.add(new Match(a, s, hits, chiSquared(tally.counts, tally.totals, a, shift(tally, a, s))));
+                }
+            }
+        }
+        matches.sort(Comparator.comparingInt(Match::letters).reversed().thenComparingDouble(Match::chiSquared));
+        List<ShiftCandidate> candidates = new ArrayList<>(matches.size());
+        for (Match match : matches) {
+            candidates.add(candidate(text, tally, match.alphabet(), match.move(), candidates.size() < decrypted));
+        }
+        return candidates;
+    }
+
+    // Splits the text into words and counts the letters each shift covers with dictionary
+    // words. Each word is checked as soon as it ends, so memory does not grow with the text.
+    private Tally tally(String text) {
+        if (text == null || text.isEmpty()) {
+            throw new CipherException("Input text cannot be empty");
+        }
+
+        // a word is a run of letters of one alphabet
+        int length = text.length();
+        int[][] pages = registry.pages;
+        boolean pairs = registry.hasSupplementaryLetters();
+        Tally tally = new Tally(registry.size());
+        int[][] counts = tally.counts;
+        // letter positions of the current word, as many as a dictionary word can have
+        int[] word = new int[Dictionary.MAX_WORD_LENGTH];
+        int wordLength = 0;
+        int letters = 0;
+        int words = 0;
+        int current = -1;
+        for (int i = 0; i < length; i++) {
+            char ch = text.charAt(i);
+            int entry = pages[ch >>> PAGE_BITS][ch & PAGE_MASK];
+            if (entry == 0 && pairs && Character.isHighSurrogate(ch) && i + 1 < length
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                entry = registry.lookup(Character.toCodePoint(ch, text.charAt(++i)));
+            }
+            int alphabet = entry == 0 ? -1 : AlphabetRegistry.alphabetIndexOf(entry);
+            if (alphabet != current) {
+                if (wordLength > 0) {
+                    check(tally, current, word, wordLength);
+                    wordLength = 0;
+                    if (++words % CHECK_INTERVAL == 0 && hasClearLead(tally.covered)) {
+                        break;
+                    }
+                }
+                current = alphabet;
+            }
+            if (entry == 0) {
+                continue;
+            }
+            int position = AlphabetRegistry.positionOf(entry);
+            if (wordLength < word.length) {
+                word[wordLength] = position;
+            }
+            wordLength++;
+            letters++;
+            if (counts[alphabet] == null) {
+                counts[alphabet] = new int[registry.get(alphabet).size()];
+            }
+            counts[alphabet][position]++;
+            tally.totals[alphabet]++;
+        }
+        if (wordLength > 0) {
+            check(tally, current, word, wordLength);
+        }
+        if (letters == 0) {
+            throw new CipherException("No letters found in the text");
+        }
+
+        // most letters covered wins, letter frequencies only score the ties
+        int[][] covered = tally.covered;
+        int bestCovered = 0;
+        double bestScore = Double.NaN;
+        for (int a = 0; a < covered.length; a++) {
+            if (covered[a] == null) {
+                continue;
+            }
+            for (int s = 0; s < covered[a].length; s++) {
+                int hits = covered[a][s];
+                if (hits == 0 || hits < bestCovered) {
+                    continue;
+                }
+                double score = Double.NaN;
+                if (hits == bestCovered) {
+                    if (Double.isNaN(bestScore)) {
+                        bestScore = chiSquared(counts, tally.totals, tally.bestAlphabet,
+                                shift(tally, tally.bestAlphabet, tally.bestMove));
+                    }
+                    score = chiSquared(counts, tally.totals, a, shift(tally, a, s));
+                    if (score >= bestScore) {
+                        continue;
+                    }
+                }
+                tally.bestAlphabet = a;
+                tally.bestMove = s;
+                bestCovered = hits;
+                bestScore = score;
+            }
+        }
+        return tally;
+    }
+
+    // covered[a][s]: letters in dictionary words when alphabet a is moved forward by s
+    private void check(Tally tally, int a, int[] word, int wordLength) {
+        tally.examined[a] += wordLength;
+        Dictionary dictionary = dictionaries[a];
+        if (dictionary == null || !dictionary.hasLength(wordLength)) {
+            return;
+        }
+        int size = tally.counts[a].length;
+        if (tally.covered[a] == null) {
+            tally.covered[a] = new int[size];
+            tally.matched[a] = new int[size];
+        }
+        // most shifts fail on length and the first two letters, only the rest are hashed
+        long candidates = dictionary.candidateShifts(wordLength, word[0], word[wordLength > 1 ? 1 : 0]);
+        for (; candidates != 0; candidates &= candidates - 1) {
+            int s = Long.numberOfTrailingZeros(candidates);
+            long fingerprint = Dictionary.SEED;
+            for (int i = 0; i < wordLength; i++) {
+                fingerprint = Dictionary.step(fingerprint, move(word[i], s, size));
+            }
+            if (dictionary.containsFingerprint(Dictionary.finish(fingerprint, wordLength))) {
+                tally.covered[a][s] += wordLength;
+                tally.matched[a][s]++;
+            }
+        }
+    }
+
+    private ShiftCandidate candidate(String text, Tally tally, int alphabet, int move, boolean decrypt) {
+        int shift = shift(tally, alphabet, move);
+        return new ShiftCandidate(registry.get(alphabet).name(), shift,
+                1 - (double) tally.covered[alphabet][move] / tally.examined[alphabet],
+                decrypt ? registry.table(-shift).translate(text) : null);
+    }
+
+    // moving forward by s undoes an encryption shift of size - s
+    private static int shift(Tally tally, int alphabet, int move) {
+        int size = tally.counts[alphabet].length;
+        return (size - move) % size;
+    }
+
+    // Shifts of other alphabets do not compete: in mixed text each alphabet's right
+    // shift makes words, so only the leading alphabet's own shifts are compared.
+    private static boolean hasClearLead(int[][] covered) {
+        int[] leading = null;
+        int best = 0;
+        for (int[] shifts : covered) {
+            if (shifts == null) {
+                continue;
+            }
+            for (int hits : shifts) {
+                if (hits > best) {
+                    best = hits;
+                    leading = shifts;
+                }
+            }
+        }
+        if (best < MIN_LEAD_LETTERS) {
+            return false;
+        }
+        int second = 0;
+        boolean skipped = false;
+        for (int hits : leading) {
+            if (hits == best && !skipped) {
+                skipped = true;
+            } else {
+                second = Math.max(second, hits);
+            }
+        }
+        return best >= LEAD_FACTOR * second;
+    }
+
+    private record Match(int alphabet, int move, int letters, double chiSquared) {
+    }
+
+    private static final class Tally {
+        final int[][] counts;
+        final int[] totals;
+        // letters and words in dictionary words, by alphabet and forward move
+        final int[][] covered;
+        final int[][] matched;
+        // letters looked at per alphabet, fewer than in the text after an early stop
+        final int[] examined;
+        int bestAlphabet = -1;
+        int bestMove;
+
+        Tally(int alphabets) {
+            counts = new int[alphabets][];
+            totals = new int[alphabets];
+            covered = new int[alphabets][];
+            matched = new int[alphabets][];
+            examined = new int[alphabets];
+        }
+
+        // the most letters another shift of the best shift's alphabet covers, see hasClearLead
+        int runnerUp() {
+            int second = 0;
+            int[] shifts = covered[bestAlphabet];
+            for (int s = 0; s < shifts.length; s++) {
+                if (s != bestMove) {
+                    second = Math.max(second, shifts[s]);
+                }
+            }
+            return second;
+        }
+    }
+
+    private double chiSquared(int[][] counts, int[] totals, int alphabet, int shift) {
+        return ShiftScorer.chiSquared(counts[alphabet], totals[alphabet], registry.get(alphabet).frequencies, shift);
+    }
+
+    private static int move(int position, int shift, int size) {
+        int moved = position + shift;
+        return moved < size ? moved : moved - size;
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.app.cipher;
+
+import static com.example.app.cipher.AlphabetRegistry.PAGE_BITS;
+import static com.example.app.cipher.AlphabetRegistry.PAGE_MASK;
+
+/**
+ * Case-insensitive letter counts for every alphabet of a registry, gathered in
+ * one pass over the text into plain int arrays.
+ */
+final class LetterHistogram {
+    // chars between two checks of whether the sample is already sufficient
+    private static final int CHECK_INTERVAL = 4096;
+    // letters needed before a sample may be considered sufficient at all
+    private static final int MIN_SAMPLE = 1000;
+    // how many standard deviations apart the compared counts must be to stop early
+    private static final int SIGMA = 3;
+
+    final AlphabetRegistry registry;
+    // per alphabet, in registry order
+    final int[][] counts;
+    final int[] totals;
+
+    LetterHistogram(AlphabetRegistry registry) {
+        this.registry = registry;
+        this.counts = new int[registry.size()][];
+        this.totals = new int[registry.size()];
+        for (int a = 0; a < counts.length; a++) {
+            counts[a] = new int[registry.get(a).size()];
+        }
+    }
+
+    static LetterHistogram of(CharSequence text) {
+        return of(AlphabetRegistry.DEFAULT, text);
+    }
+
+    static LetterHistogram of(AlphabetRegistry registry, CharSequence text) {
+        LetterHistogram histogram = new LetterHistogram(registry);
+        histogram.add(text, 0, text.length());
+        return histogram;
+    }
+
+    static LetterHistogram sample(CharSequence text) {
+        return sample(AlphabetRegistry.DEFAULT, text);
+    }
+
+    // Counts only as much of the text as needed to make the language and the
+    // most frequent letter statistically clear, see isSufficient().
+    static LetterHistogram sample(AlphabetRegistry registry, CharSequence text) {
+        LetterHistogram histogram = new LetterHistogram(registry);
+        int length = text.length();
+        for (int from = 0; from < length; from += CHECK_INTERVAL) {
+            histogram.add(text, from, Math.min(length, from + CHECK_INTERVAL));
+            if (histogram.isSufficient()) {
+                break;
+            }
+        }
+        return histogram;
+    }
+
+    // a surrogate pair starting before to is counted here, even if its low half is at to
+    void add(CharSequence text, int from, int to) {
+        int[][] pages = registry.pages;
+        boolean pairs = registry.hasSupplementaryLetters();
+        int[][] counts = this.counts;
+        int[] totals = this.totals;
+        for (int i = from; i < to; i++) {
+            char ch = text.charAt(i);
+            int entry = pages[ch >>> PAGE_BITS][ch & PAGE_MASK];
+            if (entry == 0 && pairs && Character.isHighSurrogate(ch) && i + 1 < text.length()
+                    && Character.isLowSurrogate(text.charAt(i + 1))) {
+                entry = registry.lookup(Character.toCodePoint(ch, text.charAt(++i)));
+            }
+            if (entry != 0) {
+                int alphabet = AlphabetRegistry.alphabetIndexOf(entry);
+                counts[alphabet][AlphabetRegistry.positionOf(entry)]++;
+                totals[alphabet]++;
+            }
+        }
+    }
+
+    int total() {
+        int total = 0;
+        for (int count : totals) {
+            total += count;
+        }
+        return total;
+    }
+
+    // the alphabet with the most letters, the first registered one on a tie
+    int dominantAlphabet() {
+        return mostFrequent(totals);
+    }
+
+    // counts of the alphabet the text is mostly written in
+    int[] dominant() {
+        return counts[dominantAlphabet()];
+    }
+
+    // lowest index wins a tie
+    static int mostFrequent(int[] counts) {
+        int best = 0;
+        for (int i = 1; i < counts.length; i++) {
+            if (counts[i] > counts[best]) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    // Two counts drawn from the same text differ by more than SIGMA standard
+    // deviations of their difference (roughly sqrt(a + b)), for both the
+    // language decision and the top letter versus the runner-up.
+    boolean isSufficient() {
+        if (total() < MIN_SAMPLE || !topClearlyAhead(totals)) {
+            return false;
+        }
+        return topClearlyAhead(dominant());
+    }
+
+    private static boolean topClearlyAhead(int[] counts) {
+        int top = mostFrequent(counts);
+        int second = 0;
+        for (int i = 0; i < counts.length; i++) {
+            if (i != top) {
+                second = Math.max(second, counts[i]);
+            }
+        }
+        return clearlyApart(counts[top], second);
+    }
+
+    private static boolean clearlyApart(long a, long b) {
+        long difference = a - b;
+        return difference * difference > (long) SIGMA * SIGMA * (a + b);
+    }
+}
@@ -0,0 +1,159 @@
+package com.example.app.cipher;
+
+import com.example.app.exception.CipherException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Translates files in a single-byte encoding (ASCII, KOI8-R, Windows-1251)
+ * through memory-mapped buffers with a 256-entry byte table, without
+ * decoding anything into chars.
+ */
+final class MappedFileTranslator {
+    static final Charset KOI8_R = Charset.forName("KOI8-R");
+    static final Charset WINDOWS_1251 = Charset.forName("windows-1251");
+    // bytes mapped at once; a single mapping cannot exceed 2 GB
+    private static final long WINDOW_SIZE = 1L << 30;
+    // chars decoded at a time while checking for UTF-8
+    private static final int UTF8_CHECK_CHARS = 1 << 13;
+
+    private MappedFileTranslator() {
+    }
+
+    // charset may be null, it is then detected from the whole input
+    static void translate(Path in, Path out, ShiftTable shiftTable, Charset charset) throws IOException {
+        long size = Files.size(in);
+        if (size == 0) {
+            throw new CipherException("Input text cannot be empty");
+        }
+
+        boolean inPlace = Files.exists(out) && Files.isSameFile(in, out);
+        try (FileChannel input = FileChannel.open(in, inPlace
+                     ? new StandardOpenOption[] {StandardOpenOption.READ, StandardOpenOption.WRITE}
+                     : new StandardOpenOption[] {StandardOpenOption.READ});
+             FileChannel output = inPlace ? null : FileChannel.open(out, StandardOpenOption.CREATE,
+                     StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (charset == null) {
+                charset = detect(input, size);
+            }
+            byte[] table = byteTable(shiftTable, charset);
+
+            for (long position = 0; position < size; position += WINDOW_SIZE) {
+                long length = Math.min(WINDOW_SIZE, size - position);
+                MappedByteBuffer source = input.map(inPlace ? FileChannel.MapMode.READ_WRITE
+                        : FileChannel.MapMode.READ_ONLY, position, length);
+                MappedByteBuffer target = inPlace ? source
+                        : output.map(FileChannel.MapMode.READ_WRITE, position, length);
+                for (int i = 0, n = (int) length; i < n; i++) {
+                    target.put(i, table[source.get(i) & 0xFF]);
+                }
+                if (!inPlace) {
+                    target.force();
+                }
+            }
+        }
+    }
+
+    // Pure ASCII if no byte has the high bit set. Otherwise UTF-8 is rejected and
+    // Windows-1251 and KOI8-R are told apart by where lowercase Cyrillic falls:
+    // 0xE0-0xFF in Windows-1251, 0xC0-0xDF in KOI8-R. Lowercase dominates running text.
+    // Every byte is looked at, a file may be ASCII for megabytes before its first Cyrillic.
+    static Charset detect(FileChannel input, long size) throws IOException {
+        long high = 0;
+        long upperRange = 0;
+        long lowerRange = 0;
+        for (long position = 0; position < size; position += WINDOW_SIZE) {
+            MappedByteBuffer window = input.map(FileChannel.MapMode.READ_ONLY, position,
+                    Math.min(WINDOW_SIZE, size - position));
+            for (int i = 0, n = window.limit(); i < n; i++) {
+                int b = window.get(i) & 0xFF;
+                if (b >= 0x80) {
+                    high++;
+                    if (b >= 0xE0) {
+                        upperRange++;
+                    } else if (b >= 0xC0) {
+                        lowerRange++;
+                    }
+                }
+            }
+        }
+        if (high == 0) {
+            return StandardCharsets.US_ASCII;
+        }
+        if (isUtf8(input, size)) {
+            throw new CipherException("Input is UTF-8, which is not a single-byte encoding");
+        }
+        return upperRange >= lowerRange ? WINDOWS_1251 : KOI8_R;
+    }
+
+    static byte[] byteTable(ShiftTable shiftTable, Charset charset) {
+        CharsetDecoder decoder = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        CharsetEncoder encoder = charset.newEncoder();
+        if (decoder.maxCharsPerByte() != 1 || encoder.maxBytesPerChar() != 1) {
+            throw new CipherException(charset + " is not a single-byte encoding");
+        }
+
+        byte[] table = new byte[256];
+        for (int b = 0; b < 256; b++) {
+            table[b] = (byte) b;
+            CharBuffer decoded;
+            try {
+                decoded = decoder.reset().decode(ByteBuffer.wrap(new byte[] {(byte) b}));
+            } catch (CharacterCodingException e) {
+                // byte has no character in this charset, leave it as is
+                continue;
+            }
+            char shifted = shiftTable.translate(decoded.get(0));
+            if (encoder.canEncode(shifted)) {
+                try {
+                    table[b] = encoder.reset().encode(CharBuffer.wrap(new char[] {shifted})).get(0);
+                } catch (CharacterCodingException e) {
+                    throw new CipherException("Cannot encode '" + shifted + "' in " + charset, e);
+                }
+            }
+        }
+        return table;
+    }
+
+    private static boolean isUtf8(FileChannel input, long size) throws IOException {
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder();
+        CharBuffer chars = CharBuffer.allocate(UTF8_CHECK_CHARS);
+        long position = 0;
+        while (position < size) {
+            MappedByteBuffer window = input.map(FileChannel.MapMode.READ_ONLY, position,
+                    Math.min(WINDOW_SIZE, size - position));
+            CoderResult result;
+            do {
+                chars.clear();
+                // not end of input: a sequence cut off at the end of the window is left over, not an error
+                result = decoder.decode(window, chars, false);
+                if (result.isError()) {
+                    return false;
+                }
+            } while (result.isOverflow());
+            if (position + window.limit() == size) {
+                // nor is one cut off at the end of the input
+                return true;
+            }
+            // the next window starts at the left-over bytes of a cut-off sequence
+            position += window.position();
+        }
+        return true;
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.app.cipher;
+
+import java.util.List;
+
+/**
+ * Result of {@link CaesarCipher#crackMixed}: the best shift found for every
+ * alphabet that occurs in the text, in registry order, and the text decrypted
+ * with all of them at once. The candidates carry no plaintext of their own.
+ */
+public record MixedCrack(List<ShiftCandidate> shifts, String plaintext) {
+
+    // the shift found for the named alphabet, 0 if it does not occur in the text
+    public int shiftOf(String alphabet) {
+        for (ShiftCandidate candidate : shifts) {
+            if (candidate.alphabet().equals(alphabet)) {
+                return candidate.shift();
+            }
+        }
+        return 0;
+    }
+}
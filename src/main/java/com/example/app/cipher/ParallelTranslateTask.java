@@ -0,0 +1,62 @@
+package com.example.app.cipher;
+
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Fork/join task translating a range of chars with a {@link ShiftTable}.
+ * The source is either a String or a char array; each half of the range
+ * writes to its own slice of dst, so the result needs no stitching.
+ */
+final class ParallelTranslateTask extends RecursiveAction {
+    // chars handled by one leaf task without further splitting
+    static final int LEAF_SIZE = 1 << 16;
+
+    private final ShiftTable table;
+    private final String text;
+    private final char[] chars;
+    private final char[] dst;
+    private final int from;
+    private final int to;
+
+    private ParallelTranslateTask(ShiftTable table, String text, char[] chars, char[] dst, int from, int to) {
+        this.table = table;
+        this.text = text;
+        this.chars = chars;
+        this.dst = dst;
+        this.from = from;
+        this.to = to;
+    }
+
+    static ParallelTranslateTask of(ShiftTable table, String text, char[] dst) {
+        return new ParallelTranslateTask(table, text, null, dst, 0, text.length());
+    }
+
+    // translates chars[0, length) in place
+    static ParallelTranslateTask of(ShiftTable table, char[] chars, int length) {
+        return new ParallelTranslateTask(table, null, chars, chars, 0, length);
+    }
+
+    @Override
+    protected void compute() {
+        if (to - from <= LEAF_SIZE) {
+            if (text != null) {
+                table.translate(text, from, to, dst, from);
+            } else {
+                table.translate(chars, from, to, dst, from);
+            }
+            return;
+        }
+
+        int mid = (from + to) >>> 1;
+        // never cut a surrogate pair in two
+        if (Character.isLowSurrogate(charAt(mid))) {
+            mid++;
+        }
+        invokeAll(new ParallelTranslateTask(table, text, chars, dst, from, mid),
+                new ParallelTranslateTask(table, text, chars, dst, mid, to));
+    }
+
+    private char charAt(int index) {
+        return text != null ? text.charAt(index) : chars[index];
+    }
+}
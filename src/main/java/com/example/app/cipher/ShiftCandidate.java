@@ -0,0 +1,13 @@
+package com.example.app.cipher;
+
+/**
+ * One possible shift found by {@link CaesarCipher#crack}. Lower scores are better.
+ * The plaintext is only filled in for the candidates that were asked to be decrypted
+ * and is null for the rest.
+ */
+public record ShiftCandidate(String alphabet, int shift, double score, String plaintext) {
+
+    ShiftCandidate withPlaintext(String plaintext) {
+        return new ShiftCandidate(alphabet, shift, score, plaintext);
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.app.cipher;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Finds the shift of a ciphertext that arrives in chunks, without keeping the text.
+ *
+ * Every chunk is added to running letter counts, and the shift of the dominant
+ * alphabet is re-estimated from them (see ShiftScorer#posterior). Once the best
+ * shift's posterior reaches the lock threshold, with at least MIN_LOCK_LETTERS
+ * letters seen, locked() completes with that estimate, so a caller can start
+ * decrypting the rest of the stream. Counting goes on after the lock.
+ *
+ * Not thread-safe: feed it from one thread.
+ */
+public class ShiftDetector {
+    public static final double DEFAULT_LOCK_THRESHOLD = 0.9999;
+    // below this the independence assumption behind the posterior makes it overconfident
+    static final int MIN_LOCK_LETTERS = 100;
+
+    private final LetterHistogram histogram;
+    private final double lockThreshold;
+    private final CompletableFuture<ShiftEstimate> locked = new CompletableFuture<>();
+    // high surrogate at the end of the previous chunk, 0 if none
+    private char pendingHighSurrogate;
+    private ShiftEstimate estimate;
+
+    public ShiftDetector() {
+        this(AlphabetRegistry.DEFAULT, DEFAULT_LOCK_THRESHOLD);
+    }
+
+    public ShiftDetector(AlphabetRegistry registry, double lockThreshold) {
+        if (!(lockThreshold > 0 && lockThreshold <= 1)) {
+            throw new IllegalArgumentException("Lock threshold must be in (0, 1]: " + lockThreshold);
+        }
+        this.histogram = new LetterHistogram(registry);
+        this.lockThreshold = lockThreshold;
+    }
+
+    /**
+     * Counts the chunk and returns the updated estimate,
+     * null while no letter of any alphabet has been seen.
+     */
+    public ShiftEstimate update(CharSequence chunk) {
+        int from = 0;
+        int to = chunk.length();
+        if (pendingHighSurrogate != 0 && to > 0 && Character.isLowSurrogate(chunk.charAt(0))) {
+            histogram.add(new String(new char[] {pendingHighSurrogate, chunk.charAt(0)}), 0, 2);
+            from = 1;
+        }
+        pendingHighSurrogate = 0;
+        if (to > from && Character.isHighSurrogate(chunk.charAt(to - 1))) {
+            pendingHighSurrogate = chunk.charAt(--to);
+        }
+        histogram.add(chunk, from, to);
+        return reestimate();
+    }
+
+    public ShiftEstimate estimate() {
+        return estimate;
+    }
+
+    public boolean isLocked() {
+        return locked.isDone();
+    }
+
+    // completes once, with the first estimate that reached the lock threshold
+    public CompletableFuture<ShiftEstimate> locked() {
+        return locked;
+    }
+
+    private ShiftEstimate reestimate() {
+        int total = histogram.total();
+        if (total == 0) {
+            return null;
+        }
+        int alphabetIndex = histogram.dominantAlphabet();
+        Alphabet alphabet = histogram.registry.get(alphabetIndex);
+        double[] posterior = ShiftScorer.posterior(histogram.counts[alphabetIndex], alphabet.frequencies);
+        int best = 0;
+        for (int shift = 1; shift < posterior.length; shift++) {
+            if (posterior[shift] > posterior[best]) {
+                best = shift;
+            }
+        }
+        estimate = new ShiftEstimate(alphabet.name(), best, posterior[best], total);
+        if (!locked.isDone() && total >= MIN_LOCK_LETTERS && posterior[best] >= lockThreshold) {
+            locked.complete(estimate);
+        }
+        return estimate;
+    }
+}
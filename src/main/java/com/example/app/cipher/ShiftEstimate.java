@@ -0,0 +1,11 @@
+package com.example.app.cipher;
+
+/**
+ * Current best guess of a {@link ShiftDetector}: the shift of the dominant
+ * alphabet, the posterior probability that it is the right one, and how many
+ * letters it is based on. When {@link CaesarCipher#crack(java.io.Reader, java.io.Writer)}
+ * settles a short text by dictionary words instead, the confidence is the share
+ * of letters that form dictionary words.
+ */
+public record ShiftEstimate(String alphabet, int shift, double confidence, long letters) {
+}
@@ -0,0 +1,84 @@
+package com.example.app.cipher;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Scores every shift of a letter histogram against the expected letter
+ * frequencies of its language with Pearson's chi-squared statistic.
+ * Works on counts only, nothing is decrypted to score a shift.
+ */
+final class ShiftScorer {
+
+    private ShiftScorer() {
+    }
+
+    // all shifts of the dominant alphabet, best first
+    static List<ShiftCandidate> rank(LetterHistogram histogram) {
+        return rank(histogram, histogram.dominantAlphabet());
+    }
+
+    // all shifts of one alphabet of the histogram's registry, best first
+    static List<ShiftCandidate> rank(LetterHistogram histogram, int alphabetIndex) {
+        Alphabet alphabet = histogram.registry.get(alphabetIndex);
+        int[] counts = histogram.counts[alphabetIndex];
+        int total = histogram.totals[alphabetIndex];
+
+        List<ShiftCandidate> candidates = new ArrayList<>(counts.length);
+        for (int shift = 0; shift < counts.length; shift++) {
+            candidates.add(new ShiftCandidate(alphabet.name(), shift,
+                    chiSquared(counts, total, alphabet.frequencies, shift), null));
+        }
+        candidates.sort(Comparator.comparingDouble(ShiftCandidate::score));
+        return candidates;
+    }
+
+    // Under shift s, ciphertext letter c comes from plaintext letter c - s.
+    static double chiSquared(int[] counts, int total, double[] expected, int shift) {
+        int length = counts.length;
+        double score = 0;
+        for (int c = 0; c < length; c++) {
+            int plain = c - shift;
+            if (plain < 0) {
+                plain += length;
+            }
+            double expectedCount = total * expected[plain];
+            double difference = counts[c] - expectedCount;
+            score += difference * difference / expectedCount;
+        }
+        return score;
+    }
+
+    /**
+     * Posterior probability of every shift given the counts, with a uniform prior
+     * and letters treated as independent draws from the language's frequencies:
+     * log P(shift) = sum over c of counts[c] * log expected[c - shift], normalized.
+     */
+    static double[] posterior(int[] counts, double[] expected) {
+        int length = counts.length;
+        double[] logLikelihood = new double[length];
+        double max = Double.NEGATIVE_INFINITY;
+        for (int shift = 0; shift < length; shift++) {
+            double sum = 0;
+            for (int c = 0; c < length; c++) {
+                if (counts[c] != 0) {
+                    int plain = c - shift;
+                    sum += counts[c] * Math.log(expected[plain < 0 ? plain + length : plain]);
+                }
+            }
+            logLikelihood[shift] = sum;
+            max = Math.max(max, sum);
+        }
+        // shifted by the maximum so the best shift is exp(0) and nothing overflows
+        double total = 0;
+        for (int shift = 0; shift < length; shift++) {
+            logLikelihood[shift] = Math.exp(logLikelihood[shift] - max);
+            total += logLikelihood[shift];
+        }
+        for (int shift = 0; shift < length; shift++) {
+            logLikelihood[shift] /= total;
+        }
+        return logLikelihood;
+    }
+}
@@ -0,0 +1,144 @@
+package com.example.app.cipher;
+
+import static com.example.app.cipher.AlphabetRegistry.PAGE_BITS;
+import static com.example.app.cipher.AlphabetRegistry.PAGE_MASK;
+
+/**
+ * Char-to-char translation for one shift of every alphabet of a registry.
+ *
+ * A two-level page table over the BMP: every 256-char page that holds a letter
+ * is materialized, and pages without letters are null and left as they are.
+ * Each char in the hot loop costs two array loads, however many alphabets there
+ * are. Surrogate pairs are only decoded when the registry has supplementary letters.
+ */
+final class ShiftTable {
+    private static final int BMP_PAGES = (Character.MAX_VALUE + 1) >>> PAGE_BITS;
+
+    private final AlphabetRegistry registry;
+    // per alphabet, in registry order, normalized to [0, size)
+    private final int[] shifts;
+    private final char[][] pages;
+    private final boolean pairs;
+
+    private ShiftTable(AlphabetRegistry registry, int[] shifts) {
+        this.registry = registry;
+        this.shifts = shifts;
+        this.pages = new char[BMP_PAGES][];
+        this.pairs = registry.hasSupplementaryLetters();
+        for (int page = 0; page < BMP_PAGES; page++) {
+            if (!registry.shiftedPages[page]) {
+                continue;
+            }
+            char[] chars = null;
+            for (int low = 0; low <= PAGE_MASK; low++) {
+                char ch = (char) (page << PAGE_BITS | low);
+                char shifted = translateBmp(ch);
+                if (shifted != ch && chars == null) {
+                    chars = new char[1 << PAGE_BITS];
+                    for (int i = 0; i < low; i++) {
+                        chars[i] = (char) (page << PAGE_BITS | i);
+                    }
+                }
+                if (chars != null) {
+                    chars[low] = shifted;
+                }
+            }
+            pages[page] = chars;
+        }
+    }
+
+    // one shift per alphabet of the registry, in registry order
+    static ShiftTable of(AlphabetRegistry registry, int[] shifts) {
+        if (shifts.length != registry.size()) {
+            throw new IllegalArgumentException("Expected " + registry.size() + " shifts, got " + shifts.length);
+        }
+        int[] normalized = new int[shifts.length];
+        for (int a = 0; a < shifts.length; a++) {
+            normalized[a] = Math.floorMod(shifts[a], registry.get(a).size());
+        }
+        return new ShiftTable(registry, normalized);
+    }
+
+    char translate(char ch) {
+        char[] page = pages[ch >>> PAGE_BITS];
+        return page != null ? page[ch & PAGE_MASK] : ch;
+    }
+
+    String translate(String text) {
+        char[] result = new char[text.length()];
+        translate(text, 0, text.length(), result, 0);
+        return new String(result);
+    }
+
+    void translate(String text, int from, int to, char[] dst, int dstFrom) {
+        char[][] pages = this.pages;
+        for (int i = from, j = dstFrom; i < to; i++, j++) {
+            char ch = text.charAt(i);
+            char[] page = pages[ch >>> PAGE_BITS];
+            if (page != null) {
+                dst[j] = page[ch & PAGE_MASK];
+            } else if (pairs && Character.isHighSurrogate(ch) && i + 1 < to && Character.isLowSurrogate(text.charAt(i + 1))) {
+                Character.toChars(translateSupplementary(Character.toCodePoint(ch, text.charAt(i + 1))), dst, j);
+                i++;
+                j++;
+            } else {
+                dst[j] = ch;
+            }
+        }
+    }
+
+    // src and dst may be the same array, translation is done in place then
+    void translate(char[] src, int from, int to, char[] dst, int dstFrom) {
+        char[][] pages = this.pages;
+        for (int i = from, j = dstFrom; i < to; i++, j++) {
+            char ch = src[i];
+            char[] page = pages[ch >>> PAGE_BITS];
+            if (page != null) {
+                dst[j] = page[ch & PAGE_MASK];
+            } else if (pairs && Character.isHighSurrogate(ch) && i + 1 < to && Character.isLowSurrogate(src[i + 1])) {
+                Character.toChars(translateSupplementary(Character.toCodePoint(ch, src[i + 1])), dst, j);
+                i++;
+                j++;
+            } else {
+                dst[j] = ch;
+            }
+        }
+    }
+
+    /**
+     * Reference shift of one code point, used to fill the pages. Letters keep
+     * their case. Other BMP letters come out lowercased, as they always have;
+     * supplementary ones are left alone. Never changes the number of chars.
+     */
+    int translateCodePoint(int codePoint) {
+        return Character.isBmpCodePoint(codePoint) ? translateBmp((char) codePoint) : translateSupplementary(codePoint);
+    }
+
+    private char translateBmp(char ch) {
+        if (!Character.isLetter(ch)) {
+            return ch;
+        }
+        int shifted = shift(ch, Character.toLowerCase(ch));
+        return Character.isBmpCodePoint(shifted) ? (char) shifted : ch;
+    }
+
+    private int translateSupplementary(int codePoint) {
+        if (!Character.isLetter(codePoint)) {
+            return codePoint;
+        }
+        int shifted = shift(codePoint, codePoint);
+        return Character.isSupplementaryCodePoint(shifted) ? shifted : codePoint;
+    }
+
+    private int shift(int codePoint, int unknown) {
+        int entry = registry.lookup(codePoint);
+        if (entry == 0) {
+            return unknown;
+        }
+        int alphabetIndex = AlphabetRegistry.alphabetIndexOf(entry);
+        Alphabet alphabet = registry.get(alphabetIndex);
+        int position = AlphabetRegistry.positionOf(entry) + shifts[alphabetIndex];
+        int shifted = alphabet.letterAt(position < alphabet.size() ? position : position - alphabet.size());
+        return Character.isUpperCase(codePoint) ? Character.toUpperCase(shifted) : shifted;
+    }
+}
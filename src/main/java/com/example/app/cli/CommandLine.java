@@ -0,0 +1,335 @@
+package com.example.app.cli;
+
+import com.example.app.calculator.ArithmeticEvaluator;
+import com.example.app.calculator.BatchEvaluator;
+import com.example.app.calculator.BatchReport;
+import com.example.app.cipher.CaesarCipher;
+import com.example.app.cipher.ShiftCandidate;
+import com.example.app.cipher.ShiftEstimate;
+import com.example.app.exception.CalculatorException;
+import com.example.app.exception.CipherException;
+import com.example.app.exception.UsageException;
+import com.example.app.metrics.Metrics;
+import com.example.app.server.CipherServer;
+import com.example.app.server.LoadTestClient;
+import com.example.app.server.LoadTestResult;
+import com.example.app.util.VirtualThreads;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Headless subcommands for scripts and pipelines: no menus, no prompts.
+ * Input defaults to stdin and output to stdout, results go to out and
+ * diagnostics to err, and the outcome is the returned exit code.
+ *
+ * One instance can run any number of commands, so a host process can run many
+ * jobs in one JVM by calling {@link #run} repeatedly.
+ */
+public class CommandLine {
+    public static final int OK = 0;
+    // the command ran but the operation failed, e.g. an invalid expression
+    public static final int FAILED = 1;
+    public static final int USAGE = 2;
+    public static final int IO_ERROR = 3;
+
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final Set<String> FLAGS = Set.of("--shift", "--in", "--out", "--top", "--threads",
+            "--port", "--max-in-flight", "--connections", "--depth", "--requests");
+
+    static final String USAGE_TEXT = String.join(System.lineSeparator(),
+            "Usage:",
+            "  encrypt --shift N [--in FILE] [--out FILE]",
+            "  decrypt --shift N [--in FILE] [--out FILE]",
+            "  crack [--top K] [--in FILE] [--out FILE]",
+            "  eval EXPRESSION...",
+            "  batch [--threads N] [--in FILE] [--out FILE]",
+            "  serve [--port N] [--max-in-flight N]",
+            "  loadtest [--port N] [--connections N] [--depth N] [--requests N per connection]",
+            "FILE defaults to stdin/stdout, \"-\" also means stdin/stdout.",
+            "Exit codes: 0 ok, 1 operation failed, 2 usage error, 3 I/O error.");
+
+    private final CaesarCipher cipher;
+    private final ArithmeticEvaluator evaluator;
+
+    public CommandLine() {
+        this(new CaesarCipher(), new ArithmeticEvaluator());
+    }
+
+    public CommandLine(CaesarCipher cipher, ArithmeticEvaluator evaluator) {
+        this.cipher = cipher;
+        this.evaluator = evaluator;
+    }
+
+    public int run(String[] args, InputStream in, PrintStream out, PrintStream err) {
+        try {
+            if (args.length == 0) {
+                throw new UsageException("No command given");
+            }
+            String command = args[0];
+            switch (command) {
+                case "encrypt":
+                case "decrypt":
+                    return translate(command.equals("encrypt"), parse(args), in, out);
+                case "crack":
+                    return crack(parse(args), in, out, err);
+                case "eval":
+                    return eval(args, out, err);
+                case "batch":
+                    return batch(parse(args), in, out, err);
+                case "--batch":
+                    // the older form: --batch [FILE]
+                    return batch(args.length == 2 ? Map.of("--in", args[1]) : parse(args), in, out, err);
+                case "serve":
+                    return serve(parse(args), err);
+                case "loadtest":
+                    return loadTest(parse(args), out);
+                case "help":
+                case "--help":
+                    out.println(USAGE_TEXT);
+                    return OK;
+                default:
+                    throw new UsageException("Unknown command: " + command);
+            }
+        } catch (UsageException e) {
+            err.println("Error: " + e.getMessage());
+            err.println(USAGE_TEXT);
+            return USAGE;
+        } catch (CipherException | CalculatorException e) {
+            err.println("Error: " + e.getMessage());
+            return FAILED;
+        } catch (IOException | UncheckedIOException e) {
+            err.println("I/O error: " + e.getMessage());
+            return IO_ERROR;
+        } finally {
+            out.flush();
+        }
+    }
+
+    private int translate(boolean encrypt, Map<String, String> options, InputStream in, PrintStream out)
+            throws IOException {
+        int shift = intOption(options, "--shift", null);
+        if (sameFile(options)) {
+            // the file variants write next to the input and move the result over it
+            Path file = path(options.get("--in"));
+            if (encrypt) {
+                cipher.encryptFile(file, file, shift);
+            } else {
+                cipher.decryptFile(file, file, shift);
+            }
+            return OK;
+        }
+        try (Reader reader = reader(options, in); Writer writer = writer(options, out)) {
+            if (encrypt) {
+                cipher.encrypt(reader, writer, shift);
+            } else {
+                cipher.decrypt(reader, writer, shift);
+            }
+        }
+        return OK;
+    }
+
+    private int crack(Map<String, String> options, InputStream in, PrintStream out, PrintStream err)
+            throws IOException {
+        int top = intOption(options, "--top", 0);
+        if (top < 0) {
+            throw new UsageException("--top must not be negative");
+        }
+        if (top == 0) {
+            // stream: only the text needed to lock onto the shift is held in memory
+            try (Reader reader = reader(options, in); Writer writer = writer(options, out)) {
+                ShiftEstimate estimate = cipher.crack(reader, writer);
+                err.printf("Shift %d (%s, confidence %.4f)%n", estimate.shift(), estimate.alphabet(), estimate.confidence());
+            }
+            return OK;
+        }
+
+        String text;
+        try (Reader reader = reader(options, in)) {
+            StringWriter buffer = new StringWriter();
+            reader.transferTo(buffer);
+            text = buffer.toString();
+        }
+        List<ShiftCandidate> candidates = cipher.crack(text, 0);
+        try (Writer writer = writer(options, out)) {
+            for (int i = 0; i < Math.min(top, candidates.size()); i++) {
+                ShiftCandidate candidate = candidates.get(i);
+                writer.write(String.format("%d\t%s\t%.4f%n", candidate.shift(), candidate.alphabet(), candidate.score()));
+            }
+        }
+        return OK;
+    }
+
+    // every argument is one expression; a failing one is reported and the rest still run
+    private int eval(String[] args, PrintStream out, PrintStream err) {
+        if (args.length < 2) {
+            throw new UsageException("eval needs at least one expression");
+        }
+        int status = OK;
+        for (int i = 1; i < args.length; i++) {
+            try {
+                out.println(evaluator.evaluate(args[i]));
+            } catch (CalculatorException e) {
+                err.println("Error: " + args[i] + ": " + e.getMessage());
+                status = FAILED;
+            }
+        }
+        return status;
+    }
+
+    private int batch(Map<String, String> options, InputStream in, PrintStream out, PrintStream err)
+            throws IOException {
+        int threads = positive(options, "--threads", Runtime.getRuntime().availableProcessors());
+        BatchReport report;
+        try (BatchEvaluator batch = new BatchEvaluator(evaluator, threads);
+             BufferedReader reader = reader(options, in);
+             Writer writer = writer(options, out)) {
+            report = batch.evaluate(reader, writer);
+        }
+        err.println(report);
+        return report.errors() == 0 ? OK : FAILED;
+    }
+
+    // runs until the process is killed
+    private int serve(Map<String, String> options, PrintStream err) throws IOException {
+        // read once by the JDK when its first HTTP server is created, see CipherServer
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+        CipherServer server = new CipherServer(cipher, evaluator, intOption(options, "--port", CipherServer.DEFAULT_PORT),
+                positive(options, "--max-in-flight", CipherServer.DEFAULT_MAX_IN_FLIGHT)).start();
+        // a long-running process, worth watching over JMX
+        Metrics.registerMBeans();
+        err.println("Listening on http://localhost:" + server.port()
+                + (VirtualThreads.available() ? " (virtual threads)" : " (platform threads)"));
+        try {
+            Thread.currentThread().join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            server.close();
+        }
+        return OK;
+    }
+
+    // pipelined /eval requests against a server on this machine
+    private int loadTest(Map<String, String> options, PrintStream out) throws IOException {
+        LoadTestResult result = new LoadTestClient(intOption(options, "--port", CipherServer.DEFAULT_PORT)).run(
+                "/eval", "{\"expression\": \"(1.5 + 2) * 3 - 4 / 8\"}",
+                positive(options, "--connections", 16), positive(options, "--depth", 8),
+                positive(options, "--requests", 10_000));
+        out.println(result);
+        return result.failed() == 0 ? OK : FAILED;
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 1; i < args.length; i++) {
+            String name = args[i];
+            if (!FLAGS.contains(name)) {
+                throw new UsageException("Unknown option for " + args[0] + ": " + name);
+            }
+            if (i + 1 == args.length) {
+                throw new UsageException("Missing value for " + name);
+            }
+            options.put(name, args[++i]);
+        }
+        return options;
+    }
+
+    private static int intOption(Map<String, String> options, String name, Integer defaultValue) {
+        String value = options.get(name);
+        if (value == null) {
+            if (defaultValue == null) {
+                throw new UsageException("Missing required option " + name);
+            }
+            return defaultValue;
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new UsageException(name + " must be a number: " + value);
+        }
+    }
+
+    private static int positive(Map<String, String> options, String name, int defaultValue) {
+        int value = intOption(options, name, defaultValue);
+        if (value < 1) {
+            throw new UsageException(name + " must be positive");
+        }
+        return value;
+    }
+
+    // stdin and stdout are wrapped but never closed, files are
+    private static BufferedReader reader(Map<String, String> options, InputStream in) throws IOException {
+        String path = options.getOrDefault("--in", "-");
+        if (path.equals("-")) {
+            return new BufferedReader(new InputStreamReader(new UnclosedInputStream(in), StandardCharsets.UTF_8), BUFFER_SIZE);
+        }
+        return Files.newBufferedReader(path(path), StandardCharsets.UTF_8);
+    }
+
+    // opening the output truncates it, so it must not be the input unless the command handles that
+    private static Writer writer(Map<String, String> options, PrintStream out) throws IOException {
+        String path = options.getOrDefault("--out", "-");
+        if (path.equals("-")) {
+            return new BufferedWriter(new OutputStreamWriter(new UnclosedOutputStream(out), StandardCharsets.UTF_8), BUFFER_SIZE);
+        }
+        if (sameFile(options)) {
+            throw new UsageException("--in and --out must be different files");
+        }
+        return Files.newBufferedWriter(path(path), StandardCharsets.UTF_8);
+    }
+
+    private static boolean sameFile(Map<String, String> options) throws IOException {
+        String in = options.getOrDefault("--in", "-");
+        String out = options.getOrDefault("--out", "-");
+        if (in.equals("-") || out.equals("-")) {
+            return false;
+        }
+        Path outPath = path(out);
+        return Files.exists(outPath) && Files.isSameFile(path(in), outPath);
+    }
+
+    private static Path path(String path) {
+        try {
+            return Paths.get(path);
+        } catch (InvalidPathException e) {
+            throw new UsageException("Invalid path: " + path);
+        }
+    }
+
+    private static final class UnclosedInputStream extends FilterInputStream {
+        UnclosedInputStream(InputStream in) {
+            super(in);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static final class UnclosedOutputStream extends FilterOutputStream {
+        UnclosedOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+        }
+
+        @Override
+        public void close() throws IOException {
+            flush();
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.app.exception;
+
+public class UsageException extends RuntimeException {
+    public UsageException(String message) {
+        super(message);
+    }
+}
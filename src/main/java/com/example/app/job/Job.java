@@ -0,0 +1,57 @@
+package com.example.app.job;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Handle of a job submitted to a JobExecutor. Completing result() from outside,
+ * e.g. cancelling it, also interrupts the job if it is already running.
+ */
+public final class Job<T> {
+    private final JobType type;
+    private final CompletableFuture<T> result = new CompletableFuture<>();
+    // the thread running the job, guarded by this
+    private Thread runner;
+
+    Job(JobType type) {
+        this.type = type;
+        result.whenComplete((value, error) -> interruptRunner());
+    }
+
+    public JobType type() {
+        return type;
+    }
+
+    public CompletableFuture<T> result() {
+        return result;
+    }
+
+    // a queued job is dropped, a running one is interrupted
+    public boolean cancel() {
+        return result.cancel(true);
+    }
+
+    public boolean isDone() {
+        return result.isDone();
+    }
+
+    // false if the job was already cancelled or timed out
+    synchronized boolean enter() {
+        if (result.isDone()) {
+            return false;
+        }
+        runner = Thread.currentThread();
+        return true;
+    }
+
+    // pool threads are reused, so a late interrupt must not leak into the next job
+    synchronized void exit() {
+        runner = null;
+        Thread.interrupted();
+    }
+
+    private synchronized void interruptRunner() {
+        if (runner != null && runner != Thread.currentThread()) {
+            runner.interrupt();
+        }
+    }
+}
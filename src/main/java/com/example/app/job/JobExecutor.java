@@ -0,0 +1,212 @@
+package com.example.app.job;
+
+import com.example.app.calculator.ArithmeticEvaluator;
+import com.example.app.cipher.CaesarCipher;
+import com.example.app.cipher.ShiftCandidate;
+import com.example.app.util.VirtualThreads;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs many small cipher and evaluation jobs concurrently with a separate
+ * concurrency limit per JobType.
+ *
+ * CPU-bound jobs run on a fixed pool of cpuThreads platform threads. File jobs
+ * run one per thread on virtual threads when the runtime has them (see
+ * VirtualThreads), so blocking I/O does not tie up the CPU pool. Jobs over their
+ * type's limit wait in a queue without holding any thread.
+ *
+ * A timeout counts from submission and fails the job with TimeoutException.
+ * Cancelling or timing out a running job interrupts it; the CPU work is not
+ * interruptible and finishes in the background, with its result discarded.
+ */
+public class JobExecutor implements AutoCloseable {
+    private static final int DEFAULT_FILE_LIMIT = 32;
+
+    private final CaesarCipher cipher;
+    private final ArithmeticEvaluator evaluator;
+    private final ExecutorService cpuPool;
+    private final ExecutorService ioExecutor;
+    private final ScheduledExecutorService timer;
+    private final Map<JobType, Lane> lanes = new EnumMap<>(JobType.class);
+    private volatile boolean closed;
+
+    public JobExecutor(CaesarCipher cipher, ArithmeticEvaluator evaluator) {
+        this(cipher, evaluator, Runtime.getRuntime().availableProcessors(), Map.of());
+    }
+
+    // limits missing from the map default to cpuThreads for CPU-bound types and 32 for FILE
+    public JobExecutor(CaesarCipher cipher, ArithmeticEvaluator evaluator, int cpuThreads, Map<JobType, Integer> limits) {
+        if (cpuThreads < 1) {
+            throw new IllegalArgumentException("cpuThreads must be positive: " + cpuThreads);
+        }
+        this.cipher = cipher;
+        this.evaluator = evaluator;
+        this.cpuPool = Executors.newFixedThreadPool(cpuThreads, VirtualThreads.daemonThreads("job-cpu"));
+        this.ioExecutor = VirtualThreads.newPerTaskExecutor("job-io");
+        this.timer = Executors.newSingleThreadScheduledExecutor(VirtualThreads.daemonThreads("job-timer"));
+        for (JobType type : JobType.values()) {
+            int limit = limits.getOrDefault(type, type.isIoBound() ? DEFAULT_FILE_LIMIT : cpuThreads);
+            if (limit < 1) {
+                throw new IllegalArgumentException("Limit for " + type + " must be positive: " + limit);
+            }
+            lanes.put(type, new Lane(limit, type.isIoBound() ? ioExecutor : cpuPool));
+        }
+    }
+
+    public Job<String> encrypt(String text, int shift) {
+        return submit(JobType.ENCRYPT, () -> cipher.encrypt(text, shift), null);
+    }
+
+    public Job<String> decrypt(String text, int shift) {
+        return submit(JobType.DECRYPT, () -> cipher.decrypt(text, shift), null);
+    }
+
+    public Job<List<ShiftCandidate>> crack(String text) {
+        return submit(JobType.CRACK, () -> cipher.crack(text), null);
+    }
+
+    public Job<Double> eval(String expression) {
+        return submit(JobType.EVAL, () -> evaluator.evaluate(expression), null);
+    }
+
+    public Job<String> encryptFromFile(String filePath, int shift) {
+        return submit(JobType.FILE, () -> cipher.encryptFromFile(filePath, shift), null);
+    }
+
+    // completes with the output path
+    public Job<Path> encryptFile(Path in, Path out, int shift) {
+        return submit(JobType.FILE, () -> {
+            cipher.encryptFile(in, out, shift);
+            return out;
+        }, null);
+    }
+
+    /**
+     * Queues work under the given type's limit. A null timeout means none;
+     * exceptions thrown by the work complete the job exceptionally.
+     */
+    public <T> Job<T> submit(JobType type, Callable<T> work, Duration timeout) {
+        if (closed) {
+            throw new RejectedExecutionException("JobExecutor is closed");
+        }
+        Job<T> job = new Job<>(type);
+        if (timeout != null) {
+            ScheduledFuture<?> expiry = timer.schedule(
+                    () -> job.result().completeExceptionally(new TimeoutException("Job timed out after " + timeout)),
+                    timeout.toNanos(), TimeUnit.NANOSECONDS);
+            job.result().whenComplete((value, error) -> expiry.cancel(false));
+        }
+        lanes.get(type).offer(new Entry<>(job, work));
+        return job;
+    }
+
+    public int running(JobType type) {
+        return lanes.get(type).running.get();
+    }
+
+    public int queued(JobType type) {
+        return lanes.get(type).queue.size();
+    }
+
+    // cancels queued and running jobs
+    @Override
+    public void close() {
+        closed = true;
+        for (Lane lane : lanes.values()) {
+            Entry<?> entry;
+            while ((entry = lane.queue.poll()) != null) {
+                entry.job.cancel();
+            }
+        }
+        cpuPool.shutdownNow();
+        ioExecutor.shutdownNow();
+        timer.shutdownNow();
+    }
+
+    private static final class Entry<T> {
+        final Job<T> job;
+        final Callable<T> work;
+
+        Entry(Job<T> job, Callable<T> work) {
+            this.job = job;
+            this.work = work;
+        }
+
+        void run() {
+            if (!job.enter()) {
+                return;
+            }
+            try {
+                job.result().complete(work.call());
+            } catch (Throwable e) {
+                job.result().completeExceptionally(e);
+            } finally {
+                job.exit();
+            }
+        }
+    }
+
+    /**
+     * Admission for one job type: at most limit entries are handed to the
+     * executor at a time, the rest wait in the queue. A finishing job pulls in the next.
+     */
+    private static final class Lane {
+        final int limit;
+        final ExecutorService executor;
+        final Queue<Entry<?>> queue = new ConcurrentLinkedQueue<>();
+        final AtomicInteger running = new AtomicInteger();
+
+        Lane(int limit, ExecutorService executor) {
+            this.limit = limit;
+            this.executor = executor;
+        }
+
+        void offer(Entry<?> entry) {
+            queue.add(entry);
+            drain();
+        }
+
+        private void drain() {
+            while (!queue.isEmpty()) {
+                int current = running.get();
+                if (current >= limit) {
+                    return;
+                }
+                if (!running.compareAndSet(current, current + 1)) {
+                    continue;
+                }
+                Entry<?> entry = queue.poll();
+                if (entry == null) {
+                    running.decrementAndGet();
+                    continue;
+                }
+                // jobs cancelled while queued give their slot straight back
+                if (entry.job.isDone()) {
+                    running.decrementAndGet();
+                    continue;
+                }
+                try {
+                    executor.execute(() -> {
+                        try {
+                            entry.run();
+                        } finally {
+                            running.decrementAndGet();
+                            drain();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    running.decrementAndGet();
+                    entry.job.cancel();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.example.app.job;
+
+// Kinds of work a JobExecutor accepts; each has its own concurrency limit
+public enum JobType {
+    ENCRYPT(false),
+    DECRYPT(false),
+    CRACK(false),
+    EVAL(false),
+    FILE(true);
+
+    private final boolean ioBound;
+
+    JobType(boolean ioBound) {
+        this.ioBound = ioBound;
+    }
+
+    // I/O-bound jobs run on per-task (virtual) threads, the rest on the bounded CPU pool
+    public boolean isIoBound() {
+        return ioBound;
+    }
+}
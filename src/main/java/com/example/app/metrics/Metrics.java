@@ -0,0 +1,114 @@
+package com.example.app.metrics;
+
+import com.example.app.util.LatencyHistogram;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * The operation metrics of the whole process, by name. Recording is on unless
+ * the JVM is started with -Dapp.metrics=false; the flag is read once, so the
+ * JIT removes disabled recording entirely. -Dapp.metrics.sample=N times one
+ * call in N, rounded down to a power of two, default 8; 1 times every call.
+ *
+ * The metrics are published over JMX under {@code com.example.app:type=Operation}
+ * once {@link #registerMBeans} is called, and {@link #dump} prints them as text.
+ */
+public final class Metrics {
+    static final boolean ENABLED = !"false".equalsIgnoreCase(System.getProperty("app.metrics"));
+    static final int SAMPLE_MASK = Integer.highestOneBit(
+            Math.max(1, Integer.getInteger("app.metrics.sample", 8))) - 1;
+
+    private static final String DOMAIN = "com.example.app";
+    private static final Map<String, OperationMetrics> OPERATIONS = new ConcurrentSkipListMap<>();
+    private static boolean mbeans;
+
+    private Metrics() {
+    }
+
+    public static boolean enabled() {
+        return ENABLED;
+    }
+
+    // one in this many calls has its latency timed
+    public static int sampleInterval() {
+        return SAMPLE_MASK + 1;
+    }
+
+    // the metrics of the named operation, created on first use
+    public static OperationMetrics operation(String name) {
+        OperationMetrics metrics = OPERATIONS.get(name);
+        if (metrics != null) {
+            return metrics;
+        }
+        synchronized (Metrics.class) {
+            metrics = OPERATIONS.computeIfAbsent(name, OperationMetrics::new);
+            if (mbeans) {
+                register(metrics);
+            }
+        }
+        return metrics;
+    }
+
+    // in name order
+    public static Collection<OperationMetrics> operations() {
+        return List.copyOf(OPERATIONS.values());
+    }
+
+    // Registers every operation with the platform MBean server, now and as they are
+    // created. Starting JMX takes a while, so only long-running modes call this.
+    public static synchronized void registerMBeans() {
+        if (mbeans) {
+            return;
+        }
+        mbeans = true;
+        for (OperationMetrics metrics : OPERATIONS.values()) {
+            register(metrics);
+        }
+    }
+
+    public static ObjectName objectName(String operation) {
+        try {
+            return new ObjectName(DOMAIN + ":type=Operation,name=" + operation);
+        } catch (JMException e) {
+            throw new IllegalArgumentException("Invalid operation name: " + operation, e);
+        }
+    }
+
+    public static void dump(PrintStream out) {
+        if (!ENABLED) {
+            out.println("Metrics are disabled (-Dapp.metrics=false)");
+            return;
+        }
+        out.printf("Latency sampled from 1 in %d calls%n", sampleInterval());
+        out.printf("%-28s %10s %8s %14s %10s %10s %10s %10s%n",
+                "operation", "calls", "errors", "chars", "mean us", "p50 us", "p99 us", "max us");
+        for (OperationMetrics metrics : OPERATIONS.values()) {
+            LatencyHistogram latency = metrics.latency();
+            out.printf("%-28s %10d %8d %14d %10.1f %10.1f %10.1f %10.1f%n",
+                    metrics.getName(), metrics.getCalls(), metrics.getErrors(), metrics.getChars(),
+                    latency.mean() / 1e3, latency.percentile(50) / 1e3, latency.percentile(99) / 1e3,
+                    latency.max() / 1e3);
+            metrics.getErrorsByType().forEach((type, count) -> out.printf("  %-26s %10d%n", type, count));
+        }
+    }
+
+    private static void register(OperationMetrics metrics) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = objectName(metrics.getName());
+        try {
+            if (!server.isRegistered(name)) {
+                server.registerMBean(metrics, name);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Cannot register " + name, e);
+        }
+    }
+}
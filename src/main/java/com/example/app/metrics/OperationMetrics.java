@@ -0,0 +1,131 @@
+package com.example.app.metrics;
+
+import com.example.app.util.LatencyHistogram;
+import com.example.app.util.LatencyRecorder;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts, input size, errors and latency of one operation, recorded lock-free
+ * from any number of threads. A call is bracketed like this:
+ *
+ * <pre>
+ * long start = metrics.start();
+ * try {
+ *     ...
+ *     metrics.success(start, text.length());
+ * } catch (RuntimeException e) {
+ *     metrics.failure(start, e);
+ *     throw e;
+ * }
+ * </pre>
+ *
+ * Calls, chars and errors are exact. Latency is timed for a random sample of
+ * calls, one in {@link Metrics#sampleInterval}, since reading the clock twice
+ * costs more than the rest of the bookkeeping. With metrics disabled, see
+ * {@link Metrics#enabled}, every call is a no-op.
+ */
+public final class OperationMetrics implements OperationMetricsMXBean {
+    public static final long NOT_TIMED = Long.MIN_VALUE;
+
+    private final String name;
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder chars = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final Map<String, LongAdder> errorsByType = new ConcurrentHashMap<>();
+    private final LatencyRecorder latency = new LatencyRecorder();
+
+    OperationMetrics(String name) {
+        this.name = name;
+    }
+
+    // the time a call starts, NOT_TIMED when it is not in the sample or metrics are disabled
+    public long start() {
+        if (Metrics.ENABLED && (ThreadLocalRandom.current().nextInt() & Metrics.SAMPLE_MASK) == 0) {
+            return System.nanoTime();
+        }
+        return NOT_TIMED;
+    }
+
+    public void success(long start, long chars) {
+        if (Metrics.ENABLED) {
+            if (start != NOT_TIMED) {
+                latency.record(System.nanoTime() - start);
+            }
+            calls.increment();
+            this.chars.add(chars);
+        }
+    }
+
+    public void failure(long start, Throwable error) {
+        if (Metrics.ENABLED) {
+            if (start != NOT_TIMED) {
+                latency.record(System.nanoTime() - start);
+            }
+            calls.increment();
+            errors.increment();
+            errorsByType.computeIfAbsent(error.getClass().getSimpleName(), type -> new LongAdder()).increment();
+        }
+    }
+
+    // the sampled latencies
+    public LatencyHistogram latency() {
+        return latency.snapshot();
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getCalls() {
+        return calls.sum();
+    }
+
+    @Override
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    @Override
+    public Map<String, Long> getErrorsByType() {
+        Map<String, Long> counts = new TreeMap<>();
+        errorsByType.forEach((type, count) -> counts.put(type, count.sum()));
+        return counts;
+    }
+
+    @Override
+    public long getChars() {
+        return chars.sum();
+    }
+
+    @Override
+    public double getMeanNanos() {
+        return latency.snapshot().mean();
+    }
+
+    @Override
+    public long getP50Nanos() {
+        return latency.snapshot().percentile(50);
+    }
+
+    @Override
+    public long getP99Nanos() {
+        return latency.snapshot().percentile(99);
+    }
+
+    @Override
+    public long getP999Nanos() {
+        return latency.snapshot().percentile(99.9);
+    }
+
+    @Override
+    public long getMaxNanos() {
+        return latency.snapshot().max();
+    }
+}
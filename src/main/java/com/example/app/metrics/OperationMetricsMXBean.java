@@ -0,0 +1,32 @@
+package com.example.app.metrics;
+
+import java.util.Map;
+
+/**
+ * JMX view of one instrumented operation. Latencies are in nanoseconds,
+ * percentiles within about 3% of the true value.
+ */
+public interface OperationMetricsMXBean {
+
+    String getName();
+
+    long getCalls();
+
+    long getErrors();
+
+    // failed calls by the simple name of the exception thrown
+    Map<String, Long> getErrorsByType();
+
+    // input processed, in chars
+    long getChars();
+
+    double getMeanNanos();
+
+    long getP50Nanos();
+
+    long getP99Nanos();
+
+    long getP999Nanos();
+
+    long getMaxNanos();
+}
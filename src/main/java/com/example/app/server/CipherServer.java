@@ -0,0 +1,242 @@
+package com.example.app.server;
+
+import com.example.app.calculator.ArithmeticEvaluator;
+import com.example.app.cipher.CaesarCipher;
+import com.example.app.cipher.ShiftCandidate;
+import com.example.app.exception.CalculatorException;
+import com.example.app.exception.CipherException;
+import com.example.app.util.VirtualThreads;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Local HTTP/JSON front end for one shared CaesarCipher and ArithmeticEvaluator,
+ * so scripts pay JVM startup once instead of per call. Binds to the loopback
+ * interface only.
+ *
+ * Endpoints, all POST with a JSON object body:
+ * /encrypt and /decrypt {"text", "shift"}, /crack {"text", "top"}, /eval {"expression"}.
+ * /crack answers with the shift dictionary words settle ("method": "dictionary"),
+ * else the best letter frequencies ("frequency"); its candidates are always the
+ * frequency ranking.
+ * GET /health answers without touching the engines.
+ *
+ * Each exchange runs on its own virtual thread where the runtime has them. At most
+ * maxInFlight requests are processed at once; anything beyond that is answered
+ * immediately with 429 and Retry-After instead of queueing. Connections are
+ * HTTP/1.1 keep-alive, and pipelined requests are answered in order.
+ *
+ * Headers and body go out in separate writes, so with Nagle's algorithm on every
+ * response waits for a delayed ACK. Run with -Dsun.net.httpserver.nodelay=true;
+ * the JDK reads it once, when its first HTTP server is created. The CLI's
+ * {@code serve} sets it when it is not given.
+ */
+public class CipherServer implements AutoCloseable {
+    public static final int DEFAULT_PORT = 8080;
+    public static final int DEFAULT_MAX_IN_FLIGHT = 256;
+    static final int MAX_BODY_BYTES = 16 << 20;
+
+    private final CaesarCipher cipher;
+    private final ArithmeticEvaluator evaluator;
+    private final int requestedPort;
+    private final Semaphore inFlight;
+    private final LongAdder served = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private HttpServer server;
+    private ExecutorService executor;
+
+    public CipherServer(CaesarCipher cipher, ArithmeticEvaluator evaluator, int port, int maxInFlight) {
+        if (maxInFlight < 1) {
+            throw new IllegalArgumentException("maxInFlight must be positive: " + maxInFlight);
+        }
+        this.cipher = cipher;
+        this.evaluator = evaluator;
+        this.requestedPort = port;
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    // port 0 picks a free port, see port()
+    public synchronized CipherServer start() throws IOException {
+        if (server != null) {
+            throw new IllegalStateException("Server already started");
+        }
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), requestedPort), 0);
+        server.createContext("/encrypt", exchange -> handle(exchange, this::encrypt));
+        server.createContext("/decrypt", exchange -> handle(exchange, this::decrypt));
+        server.createContext("/crack", exchange -> handle(exchange, this::crack));
+        server.createContext("/eval", exchange -> handle(exchange, this::eval));
+        server.createContext("/health", exchange -> respond(exchange, 200, "{\"status\":\"ok\"}"));
+        server.createContext("/", exchange -> respond(exchange, 404, error("Not found")));
+        executor = VirtualThreads.newPerTaskExecutor("cipher-server");
+        server.setExecutor(executor);
+        server.start();
+        return this;
+    }
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    public long servedRequests() {
+        return served.sum();
+    }
+
+    public long rejectedRequests() {
+        return rejected.sum();
+    }
+
+    @Override
+    public synchronized void close() {
+        if (server != null) {
+            server.stop(0);
+            executor.shutdownNow();
+            server = null;
+        }
+    }
+
+    private void handle(HttpExchange exchange, Endpoint endpoint) throws IOException {
+        if (!inFlight.tryAcquire()) {
+            rejected.increment();
+            // read the body anyway, the server drops a keep-alive connection with a large unread body
+            discard(exchange.getRequestBody());
+            exchange.getResponseHeaders().set("Retry-After", "1");
+            respond(exchange, 429, error("Too many requests in flight"));
+            return;
+        }
+        try {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                respond(exchange, 405, error("Use POST"));
+                return;
+            }
+            String body = readBody(exchange.getRequestBody());
+            if (body == null) {
+                respond(exchange, 413, error("Request body exceeds " + MAX_BODY_BYTES + " bytes"));
+                return;
+            }
+            String response;
+            try {
+                response = endpoint.apply(Json.parseObject(body));
+            } catch (CipherException | CalculatorException | IllegalArgumentException e) {
+                respond(exchange, 400, error(e.getMessage()));
+                return;
+            }
+            served.increment();
+            respond(exchange, 200, response);
+        } finally {
+            inFlight.release();
+        }
+    }
+
+    private String encrypt(Map<String, Object> request) {
+        return "{\"result\":" + Json.quote(cipher.encrypt(text(request, "text"), integer(request, "shift", null))) + "}";
+    }
+
+    private String decrypt(Map<String, Object> request) {
+        return "{\"result\":" + Json.quote(cipher.decrypt(text(request, "text"), integer(request, "shift", null))) + "}";
+    }
+
+    private String crack(Map<String, Object> request) {
+        int top = integer(request, "top", 1);
+        if (top < 1) {
+            throw new IllegalArgumentException("top must be positive");
+        }
+        String text = text(request, "text");
+        List<ShiftCandidate> candidates = cipher.crack(text, 1);
+        // letter frequencies are noise in a short text, conclusive dictionary words win
+        ShiftCandidate accepted = cipher.acceptWithDictionary(text);
+        ShiftCandidate best = accepted != null ? accepted : candidates.get(0);
+        StringBuilder sb = new StringBuilder()
+                .append("{\"shift\":").append(best.shift())
+                .append(",\"alphabet\":").append(Json.quote(best.alphabet()))
+                .append(",\"plaintext\":").append(Json.quote(best.plaintext()))
+                .append(",\"method\":").append(Json.quote(accepted != null ? "dictionary" : "frequency"))
+                .append(",\"candidates\":[");
+        for (int i = 0; i < Math.min(top, candidates.size()); i++) {
+            ShiftCandidate candidate = candidates.get(i);
+            sb.append(i == 0 ? "" : ",")
+                    .append("{\"shift\":").append(candidate.shift())
+                    .append(",\"alphabet\":").append(Json.quote(candidate.alphabet()))
+                    .append(",\"score\":").append(Json.number(candidate.score())).append('}');
+        }
+        return sb.append("]}").toString();
+    }
+
+    private String eval(Map<String, Object> request) {
+        return "{\"result\":" + Json.number(evaluator.evaluate(text(request, "expression"))) + "}";
+    }
+
+    private static String text(Map<String, Object> request, String name) {
+        Object value = request.get(name);
+        if (!(value instanceof String)) {
+            throw new IllegalArgumentException("Missing string field: " + name);
+        }
+        return (String) value;
+    }
+
+    private static int integer(Map<String, Object> request, String name, Integer defaultValue) {
+        Object value = request.get(name);
+        if (value == null && defaultValue != null) {
+            return defaultValue;
+        }
+        if (!(value instanceof Double) || (Double) value != Math.rint((Double) value)
+                || Math.abs((Double) value) > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Missing integer field: " + name);
+        }
+        return ((Double) value).intValue();
+    }
+
+    // null when the body is larger than MAX_BODY_BYTES
+    private static String readBody(InputStream in) throws IOException {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = in.read(buffer)) != -1) {
+            if (body.size() + read > MAX_BODY_BYTES) {
+                return null;
+            }
+            body.write(buffer, 0, read);
+        }
+        return body.toString(StandardCharsets.UTF_8);
+    }
+
+    private static void discard(InputStream in) throws IOException {
+        byte[] buffer = new byte[8192];
+        long total = 0;
+        int read;
+        while (total <= MAX_BODY_BYTES && (read = in.read(buffer)) != -1) {
+            total += read;
+        }
+    }
+
+    private static String error(String message) {
+        return "{\"error\":" + Json.quote(String.valueOf(message)) + "}";
+    }
+
+    private static void respond(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+        exchange.close();
+    }
+
+    private interface Endpoint {
+        String apply(Map<String, Object> request);
+    }
+}
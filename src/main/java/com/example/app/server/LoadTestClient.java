@@ -0,0 +1,181 @@
+package com.example.app.server;
+
+import com.example.app.util.LatencyHistogram;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Minimal HTTP/1.1 load generator for CipherServer. It drives the server over raw
+ * keep-alive sockets so it can pipeline: each connection keeps up to depth
+ * requests written ahead of the responses it has read, writing on one thread and
+ * reading on another, so new requests go out while responses are awaited.
+ */
+public class LoadTestClient {
+    private final int port;
+
+    public LoadTestClient(int port) {
+        this.port = port;
+    }
+
+    /**
+     * Sends requestsPerConnection POSTs of body to path over each of the connections
+     * concurrently. A 429 counts as rejected, and any other non-200 counts as failed.
+     */
+    public LoadTestResult run(String path, String body, int connections, int depth, int requestsPerConnection)
+            throws IOException {
+        if (connections < 1 || depth < 1 || requestsPerConnection < 0) {
+            throw new IllegalArgumentException("connections and depth must be positive");
+        }
+        byte[] payload = body.getBytes(StandardCharsets.UTF_8);
+        byte[] request = ("POST " + path + " HTTP/1.1\r\n"
+                + "Host: localhost:" + port + "\r\n"
+                + "Content-Type: application/json\r\n"
+                + "Content-Length: " + payload.length + "\r\n\r\n" + body).getBytes(StandardCharsets.UTF_8);
+
+        // a reader and a writer per connection
+        ExecutorService threads = Executors.newFixedThreadPool(2 * connections);
+        long start = System.nanoTime();
+        try {
+            List<Future<Connection>> futures = new ArrayList<>();
+            for (int i = 0; i < connections; i++) {
+                futures.add(threads.submit(() -> drive(request, depth, requestsPerConnection, threads)));
+            }
+            Connection total = new Connection();
+            for (Future<Connection> future : futures) {
+                Connection connection = future.get();
+                total.latency.merge(connection.latency);
+                total.ok += connection.ok;
+                total.rejected += connection.rejected;
+                total.failed += connection.failed;
+            }
+            LatencyHistogram latency = total.latency;
+            return new LoadTestResult(latency.count(), total.ok, total.rejected, total.failed, System.nanoTime() - start,
+                    latency.percentile(50), latency.percentile(99), latency.max());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof UncheckedIOException) {
+                throw ((UncheckedIOException) e.getCause()).getCause();
+            }
+            throw new IOException(e.getCause());
+        } finally {
+            threads.shutdownNow();
+        }
+    }
+
+    // Writes on its own thread and reads here: a request goes out as soon as the window
+    // has room, while this thread waits for the oldest response.
+    private Connection drive(byte[] request, int depth, int requests, ExecutorService threads) {
+        Connection connection = new Connection();
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(), port)) {
+            socket.setTcpNoDelay(true);
+            OutputStream out = socket.getOutputStream();
+            InputStream in = new BufferedInputStream(socket.getInputStream());
+            // send times of the requests written and not yet answered, oldest first
+            Queue<Long> sent = new ConcurrentLinkedQueue<>();
+            Semaphore window = new Semaphore(depth);
+            Future<?> writer = threads.submit(() -> {
+                for (int i = 0; i < requests; i++) {
+                    window.acquire();
+                    sent.add(System.nanoTime());
+                    out.write(request);
+                }
+                return null;
+            });
+            try {
+                for (int read = 0; read < requests; read++) {
+                    int status = readResponse(in);
+                    connection.latency.record(System.nanoTime() - sent.remove());
+                    window.release();
+                    if (status == 200) {
+                        connection.ok++;
+                    } else if (status == 429) {
+                        connection.rejected++;
+                    } else {
+                        connection.failed++;
+                    }
+                }
+                writer.get();
+            } catch (IOException e) {
+                // stop the writer too, it may be waiting for window room that never comes
+                writer.cancel(true);
+                throw e;
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UncheckedIOException(new InterruptedIOException("Interrupted"));
+        }
+        return connection;
+    }
+
+    // reads one response and returns its status; the body is skipped
+    private static int readResponse(InputStream in) throws IOException {
+        String statusLine = readLine(in);
+        String[] parts = statusLine.split(" ", 3);
+        if (parts.length < 2 || !parts[0].startsWith("HTTP/")) {
+            throw new IOException("Malformed status line: " + statusLine);
+        }
+        long length = 0;
+        String header;
+        while (!(header = readLine(in)).isEmpty()) {
+            int colon = header.indexOf(':');
+            if (colon > 0 && header.substring(0, colon).trim().equalsIgnoreCase("Content-Length")) {
+                length = Long.parseLong(header.substring(colon + 1).trim());
+            }
+        }
+        while (length > 0) {
+            long skipped = in.skip(length);
+            if (skipped <= 0) {
+                if (in.read() == -1) {
+                    throw new IOException("Connection closed inside a response body");
+                }
+                skipped = 1;
+            }
+            length -= skipped;
+        }
+        return Integer.parseInt(parts[1]);
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c;
+        while ((c = in.read()) != '\n') {
+            if (c == -1) {
+                throw new IOException("Connection closed by server");
+            }
+            if (c != '\r') {
+                line.append((char) c);
+            }
+        }
+        return line.toString();
+    }
+
+    private static final class Connection {
+        final LatencyHistogram latency = new LatencyHistogram();
+        long ok;
+        long rejected;
+        long failed;
+    }
+}
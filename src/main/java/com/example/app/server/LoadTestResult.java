@@ -0,0 +1,17 @@
+package com.example.app.server;
+
+// Outcome of one LoadTestClient run; latencies are per request, in nanoseconds
+public record LoadTestResult(long requests, long ok, long rejected, long failed, long elapsedNanos,
+                             long p50Nanos, long p99Nanos, long maxNanos) {
+
+    public double requestsPerSecond() {
+        return elapsedNanos == 0 ? 0 : requests * 1e9 / elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d requests (%d ok, %d rejected, %d failed) in %.3f s, %.0f req/s, latency p50 %.1f us, p99 %.1f us, max %.1f us",
+                requests, ok, rejected, failed, elapsedNanos / 1e9, requestsPerSecond(),
+                p50Nanos / 1e3, p99Nanos / 1e3, maxNanos / 1e3);
+    }
+}
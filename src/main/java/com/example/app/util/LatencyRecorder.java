@@ -0,0 +1,49 @@
+package com.example.app.util;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Thread-safe counterpart of {@link LatencyHistogram} for values recorded from
+ * many threads at once. Bucket counts are striped by thread, so threads rarely
+ * touch the same counter, and recording never locks. Read it through
+ * {@link #snapshot}, which merges the stripes into a plain histogram.
+ */
+public final class LatencyRecorder {
+    // more stripes than this cost memory without cutting contention much further
+    private static final int MAX_STRIPES = 8;
+
+    private final AtomicLongArray[] stripes;
+    private final int mask;
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public LatencyRecorder() {
+        int processors = Runtime.getRuntime().availableProcessors();
+        int stripes = Math.min(MAX_STRIPES, Integer.highestOneBit(processors));
+        this.stripes = new AtomicLongArray[stripes];
+        for (int i = 0; i < stripes; i++) {
+            this.stripes[i] = new AtomicLongArray(LatencyHistogram.BUCKETS);
+        }
+        this.mask = stripes - 1;
+    }
+
+    public void record(long nanos) {
+        long value = Math.max(0, nanos);
+        stripes[(int) Thread.currentThread().getId() & mask].getAndIncrement(LatencyHistogram.index(value));
+        sum.add(value);
+        max.accumulate(value);
+    }
+
+    // Not atomic across stripes: values recorded meanwhile may be half included.
+    public LatencyHistogram snapshot() {
+        long[] counts = new long[LatencyHistogram.BUCKETS];
+        for (AtomicLongArray stripe : stripes) {
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] += stripe.get(i);
+            }
+        }
+        return new LatencyHistogram(counts, sum.sum(), max.get());
+    }
+}
@@ -4,8 +4,16 @@ import org.testng.annotations.Test;
 import org.testng.annotations.BeforeMethod;
 import org.testng.Assert;
 import org.testng.annotations.DataProvider;
+import org.testng.SkipException;
 import com.example.app.exception.CalculatorException;
 
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.math.MathContext;
+import java.nio.CharBuffer;
+import java.util.List;
+import java.util.Map;
+
 public class ArithmeticEvaluatorTest {
     private ArithmeticEvaluator evaluator;
 
@@ -75,4 +83,447 @@ public class ArithmeticEvaluatorTest {
     public void testComplexExpression() {
         Assert.assertEquals(evaluator.evaluate("(2.5 + 3.5) * 2 - 1.5"), 10.5, 0.0001);
     }
+
+    @Test(description = "Test compiled expression can be evaluated repeatedly")
+    public void testCompiledExpression() {
+        CompiledExpression compiled = evaluator.compile("(2.5 + 3.5) * 2 - -1.5 / 3");
+        for (int i = 0; i < 3; i++) {
+            Assert.assertEquals(compiled.evaluate(), 12.5, 0.0001);
+        }
+    }
+
+    @Test(description = "Test compiled expression is safe to share between threads")
+    public void testCompiledExpressionConcurrent() throws InterruptedException {
+        CompiledExpression compiled = evaluator.compile("2 * (3 + (4 - (5 * (6 + 7))))");
+        double expected = compiled.evaluate();
+        Thread[] threads = new Thread[4];
+        boolean[] failed = new boolean[1];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    if (compiled.evaluate() != expected) {
+                        failed[0] = true;
+                    }
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertFalse(failed[0]);
+    }
+
+    @Test(description = "Test malformed input fails at compile time", expectedExceptions = CalculatorException.class,
+            expectedExceptionsMessageRegExp = "Missing closing parenthesis")
+    public void testCompileMalformed() {
+        evaluator.compile("(2 + 3 * 4");
+    }
+
+    @Test(description = "Test division by zero in a compiled expression", expectedExceptions = CalculatorException.class,
+            expectedExceptionsMessageRegExp = "Division by zero")
+    public void testCompiledDivisionByZero() {
+        evaluator.compile("5 / (3 - 3)").evaluate();
+    }
+
+    @Test(description = "Test variables bound by slot")
+    public void testVariablesBySlot() {
+        CompiledExpression compiled = evaluator.compile("x * 1.2 + y - x", "y", "x");
+        Assert.assertEquals(compiled.variables(), List.of("y", "x"));
+        Assert.assertEquals(compiled.evaluate(3, 10), 5.0, 0.0001);
+        Assert.assertEquals(compiled.evaluate(0, 5), 1.0, 0.0001);
+    }
+
+    @Test(description = "Test variables slotted in order of appearance and bound by name")
+    public void testVariablesByName() {
+        CompiledExpression compiled = evaluator.compile("(rate_1 + bonus) * -rate_1");
+        Assert.assertEquals(compiled.variables(), List.of("rate_1", "bonus"));
+        Assert.assertEquals(compiled.slotOf("bonus"), 1);
+        Assert.assertEquals(compiled.evaluate(Map.of("rate_1", 2.0, "bonus", 1.0)::get), -6.0, 0.0001);
+    }
+
+    @Test(description = "Test a resolver that evaluates another expression on the same thread")
+    public void testNestedResolver() {
+        CompiledExpression outer = evaluator.compile("(100 + 200) * (3 + x)");
+        CompiledExpression inner = evaluator.compile("y * 10 + 1");
+        Assert.assertEquals(outer.evaluate(name -> inner.evaluate(Map.of("y", 2.0)::get)), 7200.0, 0.0001);
+    }
+
+    @Test(description = "Test a resolver without a value for a variable", expectedExceptions = CalculatorException.class,
+            expectedExceptionsMessageRegExp = "No value for variable: y")
+    public void testResolverMissingValue() {
+        evaluator.compile("x + y").evaluate(Map.of("x", 1.0)::get);
+    }
+
+    @Test(description = "Test unknown variable", expectedExceptions = CalculatorException.class,
+            expectedExceptionsMessageRegExp = "Unknown variable: z")
+    public void testUnknownVariable() {
+        evaluator.compile("x + z", "x");
+    }
+
+    @Test(description = "Test unbound variable", expectedExceptions = CalculatorException.class,
+            expectedExceptionsMessageRegExp = "No value for variable: x")
+    public void testUnboundVariable() {
+        evaluator.evaluate("x + 1");
+    }
+
+    @Test(description = "Test batch evaluation matches per-row evaluation")
+    public void testEvaluateBatch() {
+        CompiledExpression compiled = evaluator.compile("-(x * 1.2 + y) / (y - 0.5) - 3", "x", "y");
+        int rows = ColumnEvaluator.BLOCK_SIZE * 3 + 17;
+        double[] x = new double[rows];
+        double[] y = new double[rows];
+        for (int i = 0; i < rows; i++) {
+            x[i] = i * 0.25;
+            y[i] = i % 7 + 1;
+        }
+        double[] out = new double[rows];
+        evaluator.evaluateBatch(compiled, new double[][] {x, y}, out);
+        for (int i = 0; i < rows; i++) {
+            Assert.assertEquals(out[i], compiled.evaluate(x[i], y[i]));
+        }
+    }
+
+    @Test(description = "Test batch division by zero", expectedExceptions = CalculatorException.class,
+            expectedExceptionsMessageRegExp = "Division by zero")
+    public void testEvaluateBatchDivisionByZero() {
+        evaluator.evaluateBatch(evaluator.compile("1 / x"), new double[][] {{1, 2, 0, 4}}, new double[4]);
+    }
+
+    @Test(description = "Test batch evaluation with a missing column", expectedExceptions = CalculatorException.class)
+    public void testEvaluateBatchMissingColumn() {
+        evaluator.evaluateBatch(evaluator.compile("x + y"), new double[][] {{1, 2}}, new double[2]);
+    }
+
+    @Test(description = "Test cached evaluator reuses compiled expressions")
+    public void testCacheHits() {
+        ArithmeticEvaluator cached = new ArithmeticEvaluator(100);
+        Assert.assertEquals(cached.evaluate("2 + 3 * 4"), 14.0, 0.0001);
+        Assert.assertEquals(cached.evaluate("  2 + 3 * 4 "), 14.0, 0.0001);
+        Assert.assertSame(cached.compile("2 + 3 * 4"), cached.compile("2 + 3 * 4"));
+
+        CacheStats stats = cached.cacheStats();
+        Assert.assertEquals(stats.misses(), 1);
+        Assert.assertEquals(stats.hits(), 3);
+        Assert.assertEquals(stats.size(), 1);
+        Assert.assertNull(evaluator.cacheStats());
+    }
+
+    @Test(description = "Test cache evicts least recently used expressions")
+    public void testCacheEviction() {
+        ArithmeticEvaluator cached = new ArithmeticEvaluator(4);
+        for (int i = 0; i < 10; i++) {
+            cached.evaluate(i + " + 1");
+        }
+        cached.evaluate("9 + 1");
+
+        CacheStats stats = cached.cacheStats();
+        Assert.assertEquals(stats.size(), 4);
+        Assert.assertEquals(stats.evictions(), 6);
+        Assert.assertEquals(stats.hits(), 1);
+    }
+
+    @Test(description = "Test a capacity that does not divide evenly over the segments is kept exactly")
+    public void testCacheCapacity() {
+        ArithmeticEvaluator cached = new ArithmeticEvaluator(33);
+        for (int i = 0; i < 1_000; i++) {
+            cached.evaluate(i + " + 1");
+        }
+
+        CacheStats stats = cached.cacheStats();
+        Assert.assertEquals(stats.capacity(), 33);
+        Assert.assertEquals(stats.size(), 33);
+        Assert.assertEquals(stats.evictions(), 1_000 - 33);
+    }
+
+    @Test(description = "Test malformed expressions are not cached", expectedExceptions = CalculatorException.class)
+    public void testCacheMalformed() {
+        ArithmeticEvaluator cached = new ArithmeticEvaluator(4);
+        try {
+            cached.evaluate("2 + * 3");
+        } finally {
+            Assert.assertEquals(cached.cacheStats().size(), 0);
+        }
+    }
+
+    @DataProvider(name = "jitExpressions")
+    public Object[][] jitExpressionsProvider() {
+        return new Object[][] {
+            {"2 + 3 * 4"},
+            {"-(x * 1.2 + y) / (y - 0.5) - 3"},
+            {"a - b - c - d - e - f - g * 0 + 1 / 3"},
+            {"((x))*(-(-(y)))"}
+        };
+    }
+
+    @Test(dataProvider = "jitExpressions", description = "Test bytecode kernel matches the interpreter")
+    public void testJitMatchesInterpreter(String expression) {
+        CompiledExpression compiled = evaluator.compile(expression);
+        ExpressionKernel kernel = BytecodeCompiler.compile(compiled);
+        Assert.assertNotNull(kernel);
+        double[] values = new double[compiled.variables().size()];
+        for (int row = 0; row < 50; row++) {
+            for (int slot = 0; slot < values.length; slot++) {
+                values[slot] = row * 0.37 + slot;
+            }
+            Assert.assertEquals(kernel.eval(values), compiled.evaluate(values));
+        }
+    }
+
+    @Test(description = "Test hot expressions switch to the bytecode tier")
+    public void testJitTiering() {
+        if (CompiledExpression.JIT_THRESHOLD == 0) {
+            throw new SkipException("The bytecode tier is off (-Dcalculator.jit.threshold=0)");
+        }
+        CompiledExpression compiled = evaluator.compile("x * 2 + 1");
+        for (int i = 0; i < CompiledExpression.JIT_THRESHOLD; i++) {
+            Assert.assertEquals(compiled.evaluate(i), i * 2 + 1.0);
+        }
+        Assert.assertTrue(compiled.isJitCompiled());
+        Assert.assertEquals(compiled.evaluate(4), 9.0);
+    }
+
+    @Test(description = "Test the JIT threshold property, where 0 or less means never")
+    public void testJitThresholdProperty() {
+        Assert.assertEquals(CompiledExpression.jitThreshold(null), CompiledExpression.DEFAULT_JIT_THRESHOLD);
+        Assert.assertEquals(CompiledExpression.jitThreshold("50"), 50);
+        Assert.assertEquals(CompiledExpression.jitThreshold(" 1 "), 1);
+        Assert.assertEquals(CompiledExpression.jitThreshold("0"), 0);
+        Assert.assertEquals(CompiledExpression.jitThreshold("-5"), 0);
+        Assert.assertEquals(CompiledExpression.jitThreshold("many"), CompiledExpression.DEFAULT_JIT_THRESHOLD);
+    }
+
+    @Test(description = "Test division by zero in the bytecode tier", expectedExceptions = CalculatorException.class,
+            expectedExceptionsMessageRegExp = "Division by zero")
+    public void testJitDivisionByZero() {
+        BytecodeCompiler.compile(evaluator.compile("1 / x")).eval(new double[] {0});
+    }
+
+    @DataProvider(name = "optimizedExpressions")
+    public Object[][] optimizedExpressionsProvider() {
+        return new Object[][] {
+            {"2 + 3 * 4", new int[] {CompiledExpression.CONST, 0}},
+            {"-(-(-(5)))", new int[] {CompiledExpression.CONST, 0}},
+            {"----x", new int[] {CompiledExpression.VAR, 0}},
+            {"---x", new int[] {CompiledExpression.VAR, 0, CompiledExpression.NEG}},
+            {"(x * 1 + 0) / 1 - 0", new int[] {CompiledExpression.VAR, 0}},
+            {"1 * (0 + x)", new int[] {CompiledExpression.VAR, 0}},
+            {"x * (2 - 1)", new int[] {CompiledExpression.VAR, 0}},
+            {"x / 4", new int[] {CompiledExpression.VAR, 0, CompiledExpression.CONST, 0, CompiledExpression.MUL}},
+            {"x / 3", new int[] {CompiledExpression.VAR, 0, CompiledExpression.CONST, 0, CompiledExpression.DIV}},
+            {"y * (1 + 1) + -x", new int[] {CompiledExpression.VAR, 0, CompiledExpression.CONST, 0,
+                    CompiledExpression.MUL, CompiledExpression.VAR, 1, CompiledExpression.NEG, CompiledExpression.ADD}}
+        };
+    }
+
+    @Test(dataProvider = "optimizedExpressions", description = "Test constant folding and simplification")
+    public void testOptimizer(String expression, int[] expectedCode) {
+        CompiledExpression compiled = evaluator.compile(expression);
+        Assert.assertEquals(compiled.code(), expectedCode);
+
+        CompiledExpression unoptimized = new ExpressionParser().compile(expression);
+        double[] values = {3.5, -7.25};
+        Assert.assertEquals(compiled.evaluate(values), unoptimized.evaluate(values));
+    }
+
+    @Test(description = "Test exact reciprocals for strength reduction")
+    public void testExactReciprocal() {
+        Assert.assertEquals(ExpressionOptimizer.exactReciprocal(4), 0.25);
+        Assert.assertEquals(ExpressionOptimizer.exactReciprocal(-0.5), -2.0);
+        Assert.assertEquals(ExpressionOptimizer.exactReciprocal(3), 0.0);
+        Assert.assertEquals(ExpressionOptimizer.exactReciprocal(Double.MIN_VALUE), 0.0);
+        Assert.assertEquals(ExpressionOptimizer.exactReciprocal(Double.POSITIVE_INFINITY), 0.0);
+    }
+
+    @Test(description = "Test division by a literal zero is reported at compile time",
+            expectedExceptions = CalculatorException.class, expectedExceptionsMessageRegExp = "Division by zero")
+    public void testCompileTimeDivisionByZero() {
+        evaluator.compile("x / (2 - 2)");
+    }
+
+    @Test(description = "Test deeply nested parentheses do not exhaust the native stack")
+    public void testDeepNesting() {
+        int depth = 100_000;
+        String expression = "(".repeat(depth) + "1 + 2" + ")".repeat(depth) + " * 3";
+        Assert.assertEquals(evaluator.evaluate(expression), 9.0);
+
+        StringBuilder rightNested = new StringBuilder();
+        for (int i = 0; i < depth; i++) {
+            rightNested.append("x + (");
+        }
+        rightNested.append('x').append(")".repeat(depth));
+        CompiledExpression compiled = evaluator.compile(rightNested.toString());
+        Assert.assertEquals(compiled.evaluate(1), depth + 1.0);
+        Assert.assertNull(BytecodeCompiler.classFile(compiled));
+        double[] out = new double[3];
+        evaluator.evaluateBatch(compiled, new double[][] {{1, 2, 3}}, out);
+        Assert.assertEquals(out, new double[] {depth + 1.0, 2 * (depth + 1.0), 3 * (depth + 1.0)});
+    }
+
+    @Test(description = "Test long unary sign chains")
+    public void testLongSignChains() {
+        Assert.assertEquals(evaluator.evaluate("-".repeat(1_000_001) + "5"), -5.0);
+        Assert.assertEquals(evaluator.evaluate("+-".repeat(500_000) + "5"), 5.0);
+    }
+
+    @DataProvider(name = "errorMessages")
+    public Object[][] errorMessagesProvider() {
+        return new Object[][] {
+            {"2 + * 3", "Expected number at position 4"},
+            {"(2 + 3 * 4", "Missing closing parenthesis"},
+            {"((1) + 2", "Missing closing parenthesis"},
+            {"2 3", "Unexpected character: 3"},
+            {"2 + 3)", "Unexpected character: \\)"},
+            {"2 -", "Unexpected end of expression"},
+            {"1.2.3", "Invalid number format: multiple decimal points"},
+            {".", "Invalid number format"},
+            {"(".repeat(50_000) + "1 +", "Unexpected end of expression"}
+        };
+    }
+
+    @Test(dataProvider = "errorMessages", description = "Test parser error messages")
+    public void testErrorMessages(String expression, String message) {
+        try {
+            evaluator.evaluate(expression);
+            Assert.fail("Expected CalculatorException for " + expression);
+        } catch (CalculatorException e) {
+            Assert.assertTrue(e.getMessage().matches(message), e.getMessage());
+        }
+    }
+
+    @DataProvider(name = "numberLiterals")
+    public Object[][] numberLiteralsProvider() {
+        return new Object[][] {
+            {"0"}, {"007"}, {"5."}, {".5"}, {"0.1"}, {"3.14159"}, {"123456789.987654321"},
+            {"9007199254740993"}, {"0.30000000000000004"}, {"1.0000000000000000000000001"},
+            {"179769313486231570000000000000000000000000000000000000000000000000000000000000000000000000000"},
+            {"0.000000000000000000000000000001"}
+        };
+    }
+
+    @Test(dataProvider = "numberLiterals", description = "Test number literals are correctly rounded")
+    public void testNumberLiterals(String literal) {
+        Assert.assertEquals(evaluator.evaluate(literal), Double.parseDouble(literal));
+    }
+
+    @Test(description = "Test evaluating a slice of a larger buffer")
+    public void testCharSequenceInput() {
+        CharBuffer buffer = CharBuffer.wrap("ignored; (1 + 2) * 4; ignored");
+        Assert.assertEquals(evaluator.evaluate(buffer.subSequence(9, 20)), 12.0);
+        Assert.assertEquals(evaluator.compile(new StringBuilder(" x * 2 ")).evaluate(3), 6.0);
+    }
+
+    @Test(description = "Test evaluate does not allocate for typical expressions")
+    public void testEvaluateDoesNotAllocate() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+            throw new SkipException("Per-thread allocation counters are not available");
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        String expression = "(12.5 + 3) * 4 - 7 / 2";
+        for (int i = 0; i < 1_000; i++) {
+            evaluator.evaluate(expression);
+        }
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int i = 0; i < 10_000; i++) {
+            evaluator.evaluate(expression);
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+        Assert.assertTrue(allocated < 10_000, allocated + " bytes allocated");
+    }
+
+    @DataProvider(name = "exactExpressions")
+    public Object[][] exactExpressionsProvider() {
+        return new Object[][] {
+            {"0.1 + 0.2", "0.3"},
+            {"1.10 * 3 - 0.3", "3.000"},
+            {"-(2.5 - 0.75) / 0.25", "-7"},
+            {"10 / 4", "2.5"},
+            {"1 / 3", "0.3333333333333333333333333333333333"},
+            {"9223372036854775807 + 1", "9223372036854775808"},
+            {"123456789012345678901234567890 * 2", "246913578024691357802469135780"}
+        };
+    }
+
+    @Test(dataProvider = "exactExpressions", description = "Test exact decimal evaluation")
+    public void testExactExpressions(String expression, String expected) {
+        BigDecimal result = evaluator.compileExact(expression, MathContext.DECIMAL128).evaluate();
+        Assert.assertEquals(result.compareTo(new BigDecimal(expected)), 0, result.toPlainString());
+    }
+
+    @Test(description = "Test exact evaluation with variables")
+    public void testExactVariables() {
+        ExactExpression compiled = evaluator.compileExact("price * qty - discount", MathContext.DECIMAL64,
+                "price", "qty", "discount");
+        BigDecimal total = compiled.evaluate(new BigDecimal("19.99"), BigDecimal.valueOf(3), new BigDecimal("0.97"));
+        Assert.assertEquals(total, new BigDecimal("59.00"));
+        Assert.assertEquals(evaluator.compileExact("a * b + 7 / 7", MathContext.DECIMAL64).evaluateLong(6, 7), 43);
+    }
+
+    @Test(description = "Test integer-only exact evaluation does not allocate")
+    public void testExactLongDoesNotAllocate() {
+        if (!(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)) {
+            throw new SkipException("Per-thread allocation counters are not available");
+        }
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        ExactExpression compiled = evaluator.compileExact("(x + 3) * y - x / 2", MathContext.DECIMAL64, "x", "y");
+        long[] values = {10, 4};
+        for (int i = 0; i < 1_000; i++) {
+            compiled.evaluateLong(values);
+        }
+        long thread = Thread.currentThread().getId();
+        long before = threads.getThreadAllocatedBytes(thread);
+        long sum = 0;
+        for (int i = 0; i < 10_000; i++) {
+            sum += compiled.evaluateLong(values);
+        }
+        long allocated = threads.getThreadAllocatedBytes(thread) - before;
+        Assert.assertEquals(sum, 10_000 * 47L);
+        Assert.assertTrue(allocated < 10_000, allocated + " bytes allocated");
+    }
+
+    @Test(description = "Test even quotients are rounded like any other division")
+    public void testExactDivisionRounding() {
+        MathContext threeDigits = new MathContext(3);
+        Assert.assertEquals(evaluator.compileExact("123456 / 1", threeDigits).evaluate(), new BigDecimal("1.23E+5"));
+        Assert.assertEquals(evaluator.compileExact("123456 / 1 + 1 / 3", threeDigits).evaluate(),
+                new BigDecimal("123000.333"));
+        Assert.assertEquals(evaluator.compileExact("123456 / 1", threeDigits).evaluateLong(), 123000);
+        Assert.assertEquals(evaluator.compileExact("999 / 1", threeDigits).evaluateLong(), 999);
+        Assert.assertEquals(evaluator.compileExact("123456 / 1", MathContext.DECIMAL64).evaluateLong(), 123456);
+    }
+
+    @DataProvider(name = "exactDivisions")
+    public Object[][] exactDivisionsProvider() {
+        return new Object[][] {
+            {"1", "0.1"}, {"10", "2"}, {"2.50", "0.5"}, {"-7.5", "0.25"}, {"120", "0.04"},
+            {"100", "1"}, {"6.0", "2.00"}, {"1000", "10"}, {"1", "3"}, {"123456", "1"}
+        };
+    }
+
+    @Test(dataProvider = "exactDivisions", description = "Test quotients match BigDecimal.divide, scale included")
+    public void testExactDivisionScale(String dividend, String divisor) {
+        for (MathContext mathContext : new MathContext[] {new MathContext(3), MathContext.DECIMAL64}) {
+            BigDecimal expected = new BigDecimal(dividend).divide(new BigDecimal(divisor), mathContext);
+            BigDecimal result = evaluator.compileExact(dividend + " / " + divisor, mathContext).evaluate();
+            Assert.assertEquals(result, expected, result + " vs " + expected);
+        }
+        Assert.assertEquals(evaluator.compileExact("1 / 0.1 * 3", MathContext.DECIMAL64).evaluateLong(), 30);
+    }
+
+    @Test(description = "Test exact long result that is not an integer", expectedExceptions = CalculatorException.class)
+    public void testExactLongFraction() {
+        evaluator.compileExact("7 / 2", MathContext.DECIMAL64).evaluateLong();
+    }
+
+    @Test(description = "Test exact division by zero", expectedExceptions = CalculatorException.class,
+            expectedExceptionsMessageRegExp = "Division by zero")
+    public void testExactDivisionByZero() {
+        evaluator.compileExact("1.5 / (2 - 2)", MathContext.DECIMAL64).evaluate();
+    }
+
+    @Test(description = "Test non-terminating exact division", expectedExceptions = CalculatorException.class)
+    public void testExactNonTerminatingDivision() {
+        evaluator.compileExact("1 / 3", MathContext.UNLIMITED).evaluate();
+    }
 }
@@ -0,0 +1,72 @@
+package com.example.app.calculator;
+
+import com.example.app.util.LatencyHistogram;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+public class BatchEvaluatorTest {
+    private BatchEvaluator batch;
+
+    @BeforeClass
+    public void setUp() {
+        batch = new BatchEvaluator(new ArithmeticEvaluator(), 4);
+    }
+
+    @AfterClass
+    public void tearDown() {
+        batch.close();
+    }
+
+    @Test(description = "Test results are written in input order with per-line errors")
+    public void testOrderedOutput() throws IOException {
+        int lines = BatchEvaluator.CHUNK_LINES * 20 + 7;
+        StringBuilder input = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < lines; i++) {
+            if (i % 1000 == 999) {
+                input.append(i).append(" / 0\n");
+                expected.append("error: Division by zero\n");
+            } else {
+                input.append(i).append(" * 2 + 1\n");
+                expected.append((double) (i * 2 + 1)).append('\n');
+            }
+        }
+
+        StringWriter out = new StringWriter();
+        BatchReport report = batch.evaluate(new BufferedReader(new StringReader(input.toString())), out);
+
+        Assert.assertEquals(out.toString(), expected.toString());
+        Assert.assertEquals(report.lines(), lines);
+        Assert.assertEquals(report.errors(), lines / 1000);
+        Assert.assertTrue(report.p99Nanos() <= report.maxNanos());
+        Assert.assertTrue(report.p50Nanos() <= report.p99Nanos());
+    }
+
+    @Test(description = "Test empty input")
+    public void testEmptyInput() throws IOException {
+        StringWriter out = new StringWriter();
+        BatchReport report = batch.evaluate(new BufferedReader(new StringReader("")), out);
+        Assert.assertEquals(out.toString(), "");
+        Assert.assertEquals(report.lines(), 0);
+    }
+
+    @Test(description = "Test latency histogram percentiles")
+    public void testLatencyHistogram() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (int i = 1; i <= 100_000; i++) {
+            histogram.record(i * 10L);
+        }
+        Assert.assertEquals(histogram.count(), 100_000);
+        Assert.assertEquals(histogram.max(), 1_000_000);
+        Assert.assertEquals(histogram.percentile(99), 990_000, 990_000 * 0.04);
+        Assert.assertEquals(histogram.percentile(50), 500_000, 500_000 * 0.04);
+        Assert.assertEquals(histogram.percentile(100), 1_000_000);
+    }
+}
@@ -0,0 +1,78 @@
+package com.example.app.cipher;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.stream.IntStream;
+
+public class AlphabetRegistryTest {
+    // Deseret letters are all outside the BMP: lowercase U+10428..U+1044F, uppercase U+10400..U+10427
+    private static final Alphabet DESERET = Alphabet.of("deseret",
+            new String(IntStream.range(0x10428, 0x10450).toArray(), 0, 40),
+            IntStream.range(0, 40).mapToDouble(i -> 1 + i % 7).toArray());
+
+    @Test(description = "Test lookups map both cases and case oddities to the lowercase position")
+    public void testLookup() {
+        AlphabetRegistry registry = AlphabetRegistry.DEFAULT;
+        Assert.assertEquals(registry.alphabetOf('Ж'), Alphabet.RUSSIAN);
+        Assert.assertEquals(registry.indexOf('ж'), Alphabet.RUSSIAN.indexOf('ж'));
+        Assert.assertEquals(registry.indexOf('Q'), 16);
+        // KELVIN SIGN lowercases to 'k'
+        Assert.assertEquals(registry.indexOf('K'), 10);
+        Assert.assertNull(registry.alphabetOf('λ'));
+        Assert.assertNull(registry.alphabetOf('7'));
+        Assert.assertEquals(registry.alphabet("russian"), Alphabet.RUSSIAN);
+        Assert.assertEquals(Alphabet.ENGLISH.mostFrequentLetter(), 'e');
+        Assert.assertEquals(Alphabet.RUSSIAN.mostFrequentLetter(), 'о');
+    }
+
+    @Test(description = "Test extra alphabets are shifted independently of each other")
+    public void testCustomRegistry() {
+        CaesarCipher cipher = new CaesarCipher(AlphabetRegistry.of(Alphabet.GERMAN, Alphabet.UKRAINIAN, Alphabet.GREEK), null);
+        Assert.assertEquals(cipher.encrypt("Zöß Їжак Ωμέγα", 1), "Äüa Йзбл Ανέδβ");
+        Assert.assertEquals(cipher.decrypt(cipher.encrypt("Grüße, Київ, Αθήνα!", 7), 7), "Grüße, Київ, Αθήνα!");
+        // not registered here, so left alone apart from the historical lowercasing of letters
+        Assert.assertEquals(cipher.encrypt("Ыы", 1), "ыы");
+    }
+
+    @Test(description = "Test supplementary letters are shifted as whole code points")
+    public void testSupplementaryLetters() {
+        CaesarCipher cipher = new CaesarCipher(AlphabetRegistry.of(Alphabet.ENGLISH, DESERET), null);
+        String text = "A𐐀𐐨 𐑏!";
+        String encrypted = cipher.encrypt(text, 1);
+        Assert.assertEquals(encrypted, "B𐐁𐐩 𐐨!");
+        Assert.assertEquals(cipher.decrypt(encrypted, 1), text);
+
+        LetterHistogram histogram = LetterHistogram.of(cipher.registry(), text);
+        Assert.assertEquals(histogram.totals, new int[] {1, 3});
+        Assert.assertEquals(histogram.counts[1][0], 2);
+    }
+
+    @Test(description = "Test cracking with a non-default alphabet")
+    public void testCrackGreek() {
+        CaesarCipher cipher = new CaesarCipher(AlphabetRegistry.of(Alphabet.ENGLISH, Alphabet.GREEK), null);
+        String plaintext = "Η γλώσσα είναι το σπίτι του ανθρώπου και η μνήμη ενός λαού που ταξιδεύει "
+                + "μέσα στον χρόνο, από τους παλιούς ποιητές ως τα σημερινά παιδιά στα σχολεία της πόλης";
+        List<ShiftCandidate> candidates = cipher.crack(cipher.encrypt(plaintext, 5));
+        Assert.assertEquals(candidates.get(0).alphabet(), "greek");
+        Assert.assertEquals(candidates.get(0).shift(), 5);
+        Assert.assertEquals(candidates.get(0).plaintext(), plaintext);
+    }
+
+    @Test(description = "Test overlapping alphabets are rejected", expectedExceptions = IllegalArgumentException.class,
+            expectedExceptionsMessageRegExp = "Letter а is in both russian and ukrainian")
+    public void testOverlapRejected() {
+        AlphabetRegistry.of(Alphabet.RUSSIAN, Alphabet.UKRAINIAN);
+    }
+
+    @Test(description = "Test invalid alphabets are rejected")
+    public void testInvalidAlphabets() {
+        Assert.expectThrows(IllegalArgumentException.class, () -> Alphabet.of("upper", "aB", 1, 1));
+        Assert.expectThrows(IllegalArgumentException.class, () -> Alphabet.of("digits", "a1", 1, 1));
+        Assert.expectThrows(IllegalArgumentException.class, () -> Alphabet.of("duplicate", "aba", 1, 1, 1));
+        Assert.expectThrows(IllegalArgumentException.class, () -> Alphabet.of("short", "abc", 1, 1));
+        Assert.expectThrows(IllegalArgumentException.class, () -> Alphabet.of("zero", "ab", 1, 0));
+        Assert.expectThrows(IllegalArgumentException.class, () -> Alphabet.of("mixed", "a𐐨", 1, 1));
+    }
+}
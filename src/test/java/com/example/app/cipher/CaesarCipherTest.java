@@ -8,9 +8,15 @@ import com.example.app.exception.CipherException;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
 import java.util.Scanner;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Stream;
 
 public class CaesarCipherTest {
     private CaesarCipher cipher;
@@ -81,6 +87,44 @@ public class CaesarCipherTest {
         Assert.assertEquals(encrypted, "Ebiil");
     }
 
+    @Test(description = "Test shift larger than both alphabets")
+    public void testLargeShift() {
+        Assert.assertEquals(cipher.encrypt("Hello Мир", 3 + 26 * 33 * 5), cipher.encrypt("Hello Мир", 3));
+        Assert.assertEquals(cipher.decrypt(cipher.encrypt("Hello Мир", 1000), 1000), "Hello Мир");
+    }
+
+    @Test(description = "Test lookup table matches per-character shift for every char")
+    public void testShiftTableMatchesReference() {
+        StringBuilder all = new StringBuilder();
+        for (int c = 1; c <= Character.MAX_VALUE; c++) {
+            all.append((char) c);
+        }
+        String text = all.toString();
+        for (int shift : new int[] {1, 5, 13, 25, 32, -7}) {
+            String encrypted = cipher.encrypt(text, shift);
+            for (int i = 0; i < text.length(); i++) {
+                Assert.assertEquals(encrypted.charAt(i), shiftChar(text.charAt(i), shift));
+            }
+        }
+    }
+
+    // the original per-character implementation, kept as the reference for the tables
+    private static char shiftChar(char ch, int shift) {
+        String english = "abcdefghijklmnopqrstuvwxyz";
+        String russian = "абвгдеёжзийклмнопрстуфхцчшщъыьэюя";
+        if (!Character.isLetter(ch)) {
+            return ch;
+        }
+        boolean isUpperCase = Character.isUpperCase(ch);
+        ch = Character.toLowerCase(ch);
+        String alphabet = english.indexOf(ch) != -1 ? english : russian.indexOf(ch) != -1 ? russian : null;
+        if (alphabet == null) {
+            return ch;
+        }
+        char shifted = alphabet.charAt(Math.floorMod(alphabet.indexOf(ch) + shift, alphabet.length()));
+        return isUpperCase ? Character.toUpperCase(shifted) : shifted;
+    }
+
     @Test(description = "Test empty input", expectedExceptions = CipherException.class)
     public void testEmptyInput() {
         cipher.encrypt("", 3);
@@ -104,6 +148,132 @@ public class CaesarCipherTest {
         Files.delete(tempFile);
     }
 
+    @Test(description = "Test streaming file encryption and decryption")
+    public void testStreamingFileRoundTrip() throws IOException {
+        Path input = Files.createTempFile("test", ".txt");
+        Path encrypted = Files.createTempFile("test", ".enc");
+        Path decrypted = Files.createTempFile("test", ".dec");
+        // the emoji's surrogate pair straddles the first 64K-char buffer boundary
+        String text = "a".repeat((1 << 16) - 1) + "\uD83D\uDE00 Hello Мир\n".repeat(10_000);
+        Files.writeString(input, text);
+
+        cipher.encryptFile(input, encrypted, 3);
+        Assert.assertEquals(Files.readString(encrypted), cipher.encrypt(text, 3));
+        cipher.decryptFile(encrypted, decrypted, 3);
+        Assert.assertEquals(Files.readString(decrypted), text);
+
+        Files.delete(input);
+        Files.delete(encrypted);
+        Files.delete(decrypted);
+    }
+
+    @Test(description = "Test file encryption in place, with the same path for input and output")
+    public void testFileEncryptionInPlace() throws IOException {
+        Path file = Files.createTempFile("test", ".txt");
+        try {
+            Files.writeString(file, "Hello Мир");
+            cipher.encryptFile(file, file, 3);
+            Assert.assertEquals(Files.readString(file), "Khoor Плу");
+            cipher.decryptFile(file, file.getParent().resolve(".").resolve(file.getFileName()), 3);
+            Assert.assertEquals(Files.readString(file), "Hello Мир");
+            try (Stream<Path> siblings = Files.list(file.getParent())) {
+                Assert.assertTrue(siblings.noneMatch(p -> p.getFileName().toString().startsWith(".caesar")));
+            }
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test(description = "Test streaming encryption of an empty file", expectedExceptions = CipherException.class)
+    public void testStreamingEmptyFile() throws IOException {
+        Path input = Files.createTempFile("test", ".txt");
+        try {
+            cipher.encryptFile(input, input.resolveSibling(input.getFileName() + ".enc"), 3);
+        } finally {
+            Files.delete(input);
+        }
+    }
+
+    @Test(description = "Test parallel mode matches serial output")
+    public void testParallelMatchesSerial() throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            CaesarCipher parallel = new CaesarCipher(pool);
+            String text = "Hello, Мир! \uD83D\uDE00 ".repeat(CaesarCipher.PARALLEL_THRESHOLD / 5);
+            Assert.assertEquals(parallel.encrypt(text, 7), cipher.encrypt(text, 7));
+            Assert.assertEquals(parallel.decrypt(text, 7), cipher.decrypt(text, 7));
+            Assert.assertEquals(parallel.encrypt("Hello World", 3), "Khoor Zruog");
+
+            Path input = Files.createTempFile("test", ".txt");
+            Path output = Files.createTempFile("test", ".enc");
+            Files.writeString(input, text);
+            parallel.encryptFile(input, output, 7);
+            Assert.assertEquals(Files.readString(output), cipher.encrypt(text, 7));
+            Files.delete(input);
+            Files.delete(output);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @DataProvider(name = "singleByteCharsets")
+    public Object[][] singleByteCharsets() {
+        return new Object[][] {
+            {"Hello, World! 123\n", StandardCharsets.US_ASCII},
+            {"Съешь же ещё этих мягких французских булок, да выпей чаю. Ёж\n", MappedFileTranslator.KOI8_R},
+            {"Съешь же ещё этих мягких французских булок, да выпей чаю. Ёж\n", MappedFileTranslator.WINDOWS_1251}
+        };
+    }
+
+    @Test(dataProvider = "singleByteCharsets", description = "Test memory-mapped single-byte file encryption")
+    public void testMappedFileEncryption(String line, Charset charset) throws IOException {
+        String text = line.repeat(1000);
+        Path input = Files.createTempFile("test", ".txt");
+        Path output = Files.createTempFile("test", ".enc");
+        Files.writeString(input, text, charset);
+
+        cipher.encryptMappedFile(input, output, 5);
+        Assert.assertEquals(Files.readString(output, charset), cipher.encrypt(text, 5));
+        cipher.encryptMappedFile(input, output, 5, charset);
+        Assert.assertEquals(Files.readString(output, charset), cipher.encrypt(text, 5));
+
+        // in place
+        cipher.decryptMappedFile(output, output, 5);
+        Assert.assertEquals(Files.readString(output, charset), text);
+
+        Files.delete(input);
+        Files.delete(output);
+    }
+
+    @Test(description = "Test the encoding is detected from Cyrillic far into an ASCII-looking file")
+    public void testMappedFileDetectsLateCyrillic() throws IOException {
+        String text = "Hello, World!\n".repeat(200_000) + "Привет, Мир!\n";
+        Path input = Files.createTempFile("test", ".txt");
+        Path output = Files.createTempFile("test", ".enc");
+        try {
+            Files.writeString(input, text, MappedFileTranslator.KOI8_R);
+            cipher.encryptMappedFile(input, output, 5);
+            Assert.assertEquals(Files.readString(output, MappedFileTranslator.KOI8_R), cipher.encrypt(text, 5));
+
+            Files.writeString(input, text, StandardCharsets.UTF_8);
+            Assert.assertThrows(CipherException.class, () -> cipher.encryptMappedFile(input, output, 5));
+        } finally {
+            Files.delete(input);
+            Files.delete(output);
+        }
+    }
+
+    @Test(description = "Test memory-mapped encryption rejects UTF-8 input", expectedExceptions = CipherException.class)
+    public void testMappedFileRejectsUtf8() throws IOException {
+        Path input = Files.createTempFile("test", ".txt");
+        Files.writeString(input, "Привет Мир");
+        try {
+            cipher.encryptMappedFile(input, input, 5);
+        } finally {
+            Files.delete(input);
+        }
+    }
+
     @Test(description = "Test decryption without shift")
     public void testDecryptionWithoutShift() {
         String ciphertext = "Jrypbzr gb Trugfbsg Grpuavpny Nffrffzrag ol Fretr Xnoneva. Cyrnfr ragre n ahzore orgjrra 1 naq 4.";
@@ -141,6 +311,41 @@ public class CaesarCipherTest {
                 "Эпидерсия — это что-то вроде непонятной истории, — быстро перевела для себя Настя");
     }
 
+    @Test(description = "Test headless crack ranks every shift and decrypts the best one")
+    public void testCrack() {
+        String ciphertext = "Jrypbzr gb Trugfbsg Grpuavpny Nffrffzrag ol Fretr Xnoneva. Cyrnfr ragre n ahzore orgjrra 1 naq 4.";
+        List<ShiftCandidate> candidates = cipher.crack(ciphertext);
+
+        Assert.assertEquals(candidates.size(), 26);
+        Assert.assertEquals(candidates.get(0).alphabet(), "english");
+        Assert.assertEquals(candidates.get(0).shift(), 13);
+        Assert.assertEquals(candidates.get(0).plaintext(),
+                "Welcome to Gehtsoft Technical Assessment by Serge Kabarin. Please enter a number between 1 and 4.");
+        Assert.assertNull(candidates.get(1).plaintext());
+        Assert.assertTrue(candidates.get(0).score() <= candidates.get(1).score());
+    }
+
+    @DataProvider(name = "shortCrackCases")
+    public Object[][] shortCrackCases() {
+        return new Object[][] {
+            {"Hello World, this is a short message", 3},
+            {"Attack at dawn", 11},
+            {"Привет, как твои дела сегодня?", 7},
+            {"Мы пошли гулять в парк, а потом вернулись домой", 20}
+        };
+    }
+
+    @Test(dataProvider = "shortCrackCases", description = "Test crack on short texts")
+    public void testCrackShortText(String plaintext, int shift) {
+        Assert.assertEquals(cipher.crack(cipher.encrypt(plaintext, shift)).get(0).plaintext(), plaintext);
+    }
+
+    @Test(description = "Test crack of text without letters", expectedExceptions = CipherException.class,
+            expectedExceptionsMessageRegExp = "No letters found in the text")
+    public void testCrackNoLetters() {
+        cipher.crack("12345 !?");
+    }
+
     @Test(description = "Test decryption without shift - empty input",
             expectedExceptions = CipherException.class,
             expectedExceptionsMessageRegExp = "Input text cannot be empty")
@@ -154,4 +359,39 @@ public class CaesarCipherTest {
         }
     }
 
+
+    @Test(description = "Test per-alphabet shifts")
+    public void testPerAlphabetShifts() {
+        Map<Alphabet, Integer> shifts = Map.of(Alphabet.ENGLISH, 3, Alphabet.RUSSIAN, 10);
+        String encrypted = cipher.encrypt("Hello, Мир!", shifts);
+        Assert.assertEquals(encrypted, "Khoor, " + cipher.encrypt("Мир!", 10));
+        Assert.assertEquals(cipher.decrypt(encrypted, shifts), "Hello, Мир!");
+        Assert.assertEquals(cipher.encrypt("Hello, Мир!", Map.of(Alphabet.RUSSIAN, 1)), "Hello, Нйс!");
+        Assert.assertThrows(CipherException.class, () -> cipher.encrypt("Hello", Map.of(Alphabet.GREEK, 1)));
+    }
+
+    @Test(description = "Test cracking mixed text with a different shift per alphabet")
+    public void testCrackMixed() {
+        String plaintext = "Отчёт за квартал: revenue grew by twelve percent while operating costs stayed flat. "
+                + "Продажи в регионах выросли, особенно на севере, где открылись новые магазины. "
+                + "The board approved the new budget and asked the team to prepare a detailed forecast. "
+                + "Совет директоров утвердил бюджет и поручил подготовить подробный прогноз на следующий год.";
+        String encrypted = cipher.encrypt(plaintext, Map.of(Alphabet.ENGLISH, 5, Alphabet.RUSSIAN, 17));
+
+        MixedCrack result = cipher.crackMixed(encrypted);
+        Assert.assertEquals(result.shiftOf("english"), 5);
+        Assert.assertEquals(result.shiftOf("russian"), 17);
+        Assert.assertEquals(result.plaintext(), plaintext);
+        // a single whole-text decision gets the other language wrong
+        Assert.assertNotEquals(cipher.crack(encrypted).get(0).plaintext(), plaintext);
+    }
+
+    @Test(description = "Test mixed cracking of a single-language text")
+    public void testCrackMixedSingleLanguage() {
+        String plaintext = "Meet me at the old bridge after sunset and bring the letters you found in the attic";
+        MixedCrack result = cipher.crackMixed(cipher.encrypt(plaintext, 9));
+        Assert.assertEquals(result.shifts().size(), 1);
+        Assert.assertEquals(result.shiftOf("english"), 9);
+        Assert.assertEquals(result.plaintext(), plaintext);
+    }
 }
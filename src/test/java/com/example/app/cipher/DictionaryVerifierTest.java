@@ -0,0 +1,147 @@
+package com.example.app.cipher;
+
+import com.example.app.exception.CipherException;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Scanner;
+import java.util.Set;
+
+public class DictionaryVerifierTest {
+    private final CaesarCipher cipher = new CaesarCipher();
+    private final DictionaryVerifier verifier = new DictionaryVerifier(AlphabetRegistry.DEFAULT);
+
+    @Test(description = "Test the bundled word lists")
+    public void testBundledDictionaries() {
+        Dictionary english = Dictionary.bundled(Alphabet.ENGLISH);
+        Assert.assertTrue(english.size() > 500);
+        Assert.assertTrue(english.contains("world"));
+        Assert.assertTrue(english.contains("World"));
+        Assert.assertFalse(english.contains("wrold"));
+        Assert.assertFalse(english.contains("world!"));
+        Assert.assertFalse(english.contains(""));
+        Assert.assertTrue(Dictionary.bundled(Alphabet.RUSSIAN).contains("Привет"));
+        Assert.assertSame(Dictionary.bundled(Alphabet.ENGLISH), english);
+        Assert.assertNull(Dictionary.bundled(Alphabet.GREEK));
+    }
+
+    @DataProvider(name = "shortTexts")
+    public Object[][] shortTexts() {
+        return new Object[][] {
+            {"Hello World", 3},
+            {"Bring the book to school", 19},
+            {"Meet me at noon", 25},
+            {"Привет, как дела?", 7},
+            {"Где мой ключ от дома?", 32}
+        };
+    }
+
+    @Test(dataProvider = "shortTexts", description = "Test short texts are cracked by dictionary words")
+    public void testVerifyShortText(String plaintext, int shift) {
+        ShiftCandidate candidate = verifier.verify(cipher.encrypt(plaintext, shift));
+        Assert.assertEquals(candidate.shift(), shift);
+        Assert.assertEquals(candidate.plaintext(), plaintext);
+        Assert.assertEquals(verifier.accept(cipher.encrypt(plaintext, shift)), candidate);
+    }
+
+    @DataProvider(name = "veryShortTexts")
+    public Object[][] veryShortTexts() {
+        return new Object[][] {{"Hi"}, {"Ok"}, {"Meet Bob"}, {"No"}, {"Да"}};
+    }
+
+    @Test(dataProvider = "veryShortTexts", description = "Test a word or two that other shifts also make is never accepted")
+    public void testVeryShortTextNotAccepted(String plaintext) {
+        for (int shift = 0; shift < 33; shift++) {
+            String ciphertext = cipher.encrypt(plaintext, shift);
+            Assert.assertNull(verifier.accept(ciphertext), ciphertext);
+            Assert.assertFalse(verifier.rank(ciphertext, 3).isEmpty(), ciphertext);
+        }
+    }
+
+    @Test(description = "Test mixed text is accepted although each alphabet's right shift makes words")
+    public void testAcceptMixedText() {
+        String plaintext = "Meet me at noon, где мой дом";
+        ShiftCandidate candidate = verifier.accept(cipher.encrypt(plaintext, 11));
+        Assert.assertNotNull(candidate);
+        Assert.assertEquals(candidate.shift(), 11);
+        Assert.assertEquals(candidate.plaintext(), plaintext);
+    }
+
+    @Test(description = "Test the ranking puts the verified shift first")
+    public void testRank() {
+        String ciphertext = cipher.encrypt("Hello World", 3);
+        List<ShiftCandidate> ranked = verifier.rank(ciphertext, 1);
+        Assert.assertEquals(ranked.get(0), verifier.verify(ciphertext));
+        Assert.assertTrue(ranked.stream().skip(1).allMatch(c -> c.plaintext() == null));
+        Assert.assertTrue(verifier.rank("Xyzzy plugh", 3).isEmpty());
+    }
+
+    @Test(description = "Test the verifier succeeds where letter frequencies fail")
+    public void testVerifyBeatsFrequencies() {
+        String ciphertext = cipher.encrypt("Hello World", 3);
+        Assert.assertNotEquals(cipher.crack(ciphertext).get(0).shift(), 3);
+        ShiftCandidate candidate = cipher.crackWithDictionary(ciphertext);
+        Assert.assertEquals(candidate.alphabet(), "english");
+        Assert.assertEquals(candidate.shift(), 3);
+        Assert.assertEquals(candidate.score(), 0.0);
+    }
+
+    @Test(description = "Test text without dictionary words")
+    public void testVerifyWithoutWords() {
+        Assert.assertNull(verifier.verify("Xyzzy plugh"));
+        Assert.assertThrows(CipherException.class, () -> verifier.verify(""));
+        Assert.assertThrows(CipherException.class, () -> verifier.verify("12345 !?"));
+    }
+
+    @Test(description = "Test a custom dictionary")
+    public void testCustomDictionary() {
+        Dictionary greek = Dictionary.of(Alphabet.GREEK, List.of("καλημερα", "κοσμε", "hello"));
+        Assert.assertEquals(greek.size(), 2);
+        AlphabetRegistry registry = AlphabetRegistry.of(Alphabet.ENGLISH, Alphabet.GREEK);
+        DictionaryVerifier greekVerifier = new DictionaryVerifier(registry, greek);
+        CaesarCipher greekCipher = new CaesarCipher(registry, null);
+
+        ShiftCandidate candidate = greekVerifier.verify(greekCipher.encrypt("Καλημερα κοσμε", 5));
+        Assert.assertEquals(candidate.alphabet(), "greek");
+        Assert.assertEquals(candidate.shift(), 5);
+        Assert.assertEquals(candidate.plaintext(), "Καλημερα κοσμε");
+        Assert.assertThrows(IllegalArgumentException.class,
+                () -> new DictionaryVerifier(AlphabetRegistry.DEFAULT, greek));
+    }
+
+    @Test(description = "Test decryption without shift needs no choice when the dictionary is sure")
+    public void testDecryptWithoutShiftSkipsPrompt() {
+        Scanner scanner = new Scanner(new ByteArrayInputStream(new byte[0]));
+        Assert.assertEquals(cipher.decryptWithoutShift(cipher.encrypt("Bring the book to school", 11), scanner),
+                "Bring the book to school");
+    }
+
+    @Test(description = "Test decryption without shift asks about a very short text")
+    public void testDecryptWithoutShiftPromptsForShortText() {
+        String ciphertext = cipher.encrypt("Hi", 5);
+        Scanner empty = new Scanner(new ByteArrayInputStream(new byte[0]));
+        Assert.assertThrows(NoSuchElementException.class, () -> cipher.decryptWithoutShift(ciphertext, empty));
+
+        // "No" is the dictionary's best guess, yet only one of three choices
+        List<String> choices = new ArrayList<>();
+        for (int choice = 1; choice <= 3; choice++) {
+            Scanner scanner = new Scanner(new ByteArrayInputStream((choice + "\n").getBytes()));
+            choices.add(cipher.decryptWithoutShift(ciphertext, scanner));
+        }
+        Assert.assertEquals(choices.get(0), "No");
+        Assert.assertEquals(Set.copyOf(choices).size(), 3, choices.toString());
+    }
+
+    @Test(description = "Test decryption without shift offers fewer choices for a two-letter alphabet")
+    public void testDecryptWithoutShiftSmallAlphabet() {
+        AlphabetRegistry registry = AlphabetRegistry.of(Alphabet.of("binary", "ab", 0.7, 0.3));
+        CaesarCipher binary = new CaesarCipher(registry, null);
+        Scanner scanner = new Scanner(new ByteArrayInputStream("3\n2\n".getBytes()));
+        Assert.assertEquals(binary.decryptWithoutShift("aaab", scanner), "bbba");
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.app.cipher;
+
+import org.testng.annotations.Test;
+import org.testng.Assert;
+
+public class LetterHistogramTest {
+
+    @Test(description = "Test letters of both alphabets are counted case-insensitively")
+    public void testCountsBothAlphabets() {
+        LetterHistogram histogram = LetterHistogram.of("Hello, Мир! ЁЁё 123");
+        Assert.assertEquals(histogram.totals, new int[] {5, 6});
+        Assert.assertEquals(histogram.counts[0]['l' - 'a'], 2);
+        Assert.assertEquals(histogram.counts[1][Alphabet.RUSSIAN.indexOf('ё')], 3);
+        Assert.assertEquals(histogram.dominantAlphabet(), 1);
+        Assert.assertEquals(LetterHistogram.mostFrequent(histogram.dominant()), Alphabet.RUSSIAN.indexOf('ё'));
+    }
+
+    @Test(description = "Test sampling stops early on a long, clear text")
+    public void testSampleStopsEarly() {
+        String text = "the quick brown fox jumps over the lazy dog, see the tree. ".repeat(10_000);
+        LetterHistogram sampled = LetterHistogram.sample(text);
+        LetterHistogram full = LetterHistogram.of(text);
+        Assert.assertTrue(sampled.total() < full.total() / 10);
+        Assert.assertEquals(LetterHistogram.mostFrequent(sampled.dominant()),
+                LetterHistogram.mostFrequent(full.dominant()));
+    }
+
+    @Test(description = "Test sampling reads a short text completely")
+    public void testSampleShortText() {
+        Assert.assertEquals(LetterHistogram.sample("Hello World").total(), 10);
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.app.cipher;
+
+import com.example.app.exception.CipherException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+
+public class ShiftDetectorTest {
+    private static final String ENGLISH = "It was the best of times, it was the worst of times, it was the age of wisdom, "
+            + "it was the age of foolishness, it was the epoch of belief, it was the epoch of incredulity, "
+            + "it was the season of light, it was the season of darkness, it was the spring of hope. ";
+    private static final String RUSSIAN = "Все счастливые семьи похожи друг на друга, каждая несчастливая семья "
+            + "несчастлива по-своему. Все смешалось в доме Облонских. Жена узнала, что муж был в связи "
+            + "с бывшею в их доме француженкою-гувернанткой, и объявила мужу, что не может жить с ним в одном доме. ";
+
+    @Test(description = "Test the detector locks onto the shift long before the end of the stream")
+    public void testLocksEarly() {
+        CaesarCipher cipher = new CaesarCipher();
+        String ciphertext = cipher.encrypt(ENGLISH.repeat(50), 7);
+        ShiftDetector detector = new ShiftDetector();
+        int fed = 0;
+        while (!detector.isLocked() && fed < ciphertext.length()) {
+            int end = Math.min(ciphertext.length(), fed + 64);
+            detector.update(ciphertext.subSequence(fed, end));
+            fed = end;
+        }
+        Assert.assertTrue(detector.isLocked());
+        Assert.assertTrue(fed < ciphertext.length() / 10, "locked after " + fed + " chars");
+        ShiftEstimate locked = detector.locked().join();
+        Assert.assertEquals(locked.alphabet(), "english");
+        Assert.assertEquals(locked.shift(), 7);
+        Assert.assertTrue(locked.confidence() >= ShiftDetector.DEFAULT_LOCK_THRESHOLD);
+        Assert.assertTrue(locked.letters() >= ShiftDetector.MIN_LOCK_LETTERS);
+    }
+
+    @Test(description = "Test the estimate before and without a lock")
+    public void testEstimateWithoutLock() {
+        ShiftDetector detector = new ShiftDetector();
+        Assert.assertNull(detector.update("12345 !?"));
+        ShiftEstimate estimate = detector.update(new CaesarCipher().encrypt("Привет", 3));
+        Assert.assertEquals(estimate.alphabet(), "russian");
+        Assert.assertEquals(estimate.letters(), 6);
+        Assert.assertFalse(detector.isLocked());
+        Assert.assertTrue(estimate.confidence() > 0 && estimate.confidence() <= 1);
+    }
+
+    @Test(description = "Test the posterior is a probability distribution")
+    public void testPosterior() {
+        LetterHistogram histogram = LetterHistogram.of(new CaesarCipher().encrypt(RUSSIAN, 30));
+        double[] posterior = ShiftScorer.posterior(histogram.counts[1], Alphabet.RUSSIAN.frequencies);
+        double sum = 0;
+        for (double p : posterior) {
+            sum += p;
+        }
+        Assert.assertEquals(sum, 1.0, 1e-9);
+        Assert.assertTrue(posterior[30] > 0.99);
+    }
+
+    @Test(description = "Test streaming crack decrypts the whole stream")
+    public void testStreamingCrack() throws IOException {
+        CaesarCipher cipher = new CaesarCipher();
+        String plaintext = RUSSIAN.repeat(200);
+        StringWriter out = new StringWriter();
+        ShiftEstimate estimate = cipher.crack(new StringReader(cipher.encrypt(plaintext, 12)), out);
+        Assert.assertEquals(estimate.shift(), 12);
+        Assert.assertEquals(out.toString(), plaintext);
+    }
+
+    @Test(description = "Test streaming crack of a short text falls back to the final estimate")
+    public void testStreamingCrackShortText() throws IOException {
+        CaesarCipher cipher = new CaesarCipher();
+        StringWriter out = new StringWriter();
+        cipher.crack(new StringReader(cipher.encrypt(ENGLISH, 4)), out);
+        Assert.assertEquals(out.toString(), ENGLISH);
+    }
+
+    @Test(description = "Test streaming crack of text without letters", expectedExceptions = CipherException.class)
+    public void testStreamingCrackNoLetters() throws IOException {
+        new CaesarCipher().crack(new StringReader("12345 !?"), new StringWriter());
+    }
+}
@@ -0,0 +1,148 @@
+package com.example.app.cli;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class CommandLineTest {
+    private CommandLine commandLine;
+    private ByteArrayOutputStream out;
+    private ByteArrayOutputStream err;
+
+    @BeforeMethod
+    public void setUp() {
+        commandLine = new CommandLine();
+        out = new ByteArrayOutputStream();
+        err = new ByteArrayOutputStream();
+    }
+
+    private int run(String input, String... args) {
+        return commandLine.run(args, new ByteArrayInputStream(input.getBytes(StandardCharsets.UTF_8)),
+                new PrintStream(out, true, StandardCharsets.UTF_8), new PrintStream(err, true, StandardCharsets.UTF_8));
+    }
+
+    private String output() {
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    @Test(description = "Test encrypt and decrypt stream stdin to stdout")
+    public void testEncryptDecryptStreams() {
+        Assert.assertEquals(run("Hello, Мир!", "encrypt", "--shift", "3"), CommandLine.OK);
+        String encrypted = output();
+        Assert.assertEquals(encrypted, "Khoor, Плу!");
+
+        out.reset();
+        Assert.assertEquals(run(encrypted, "decrypt", "--shift", "3"), CommandLine.OK);
+        Assert.assertEquals(output(), "Hello, Мир!");
+    }
+
+    @Test(description = "Test encrypt between files")
+    public void testEncryptFiles() throws IOException {
+        Path in = Files.createTempFile("cli", ".txt");
+        Path encrypted = Files.createTempFile("cli", ".enc");
+        try {
+            Files.writeString(in, "abc xyz", StandardCharsets.UTF_8);
+            int status = run("", "encrypt", "--shift", "1", "--in", in.toString(), "--out", encrypted.toString());
+            Assert.assertEquals(status, CommandLine.OK);
+            Assert.assertEquals(Files.readString(encrypted, StandardCharsets.UTF_8), "bcd yza");
+            Assert.assertEquals(output(), "");
+        } finally {
+            Files.deleteIfExists(in);
+            Files.deleteIfExists(encrypted);
+        }
+    }
+
+    @Test(description = "Test the same file as input and output")
+    public void testSameFile() throws IOException {
+        Path file = Files.createTempFile("cli", ".txt");
+        try {
+            Files.writeString(file, "abc xyz", StandardCharsets.UTF_8);
+            Assert.assertEquals(run("", "encrypt", "--shift", "1", "--in", file.toString(), "--out", file.toString()),
+                    CommandLine.OK);
+            Assert.assertEquals(Files.readString(file, StandardCharsets.UTF_8), "bcd yza");
+            Assert.assertEquals(run("", "decrypt", "--shift", "1", "--in", file.toString(), "--out", file.toString()),
+                    CommandLine.OK);
+            Assert.assertEquals(Files.readString(file, StandardCharsets.UTF_8), "abc xyz");
+
+            // commands that cannot work in place refuse rather than truncate the input
+            Assert.assertEquals(run("", "crack", "--in", file.toString(), "--out", file.toString()), CommandLine.USAGE);
+            Assert.assertEquals(Files.readString(file, StandardCharsets.UTF_8), "abc xyz");
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @Test(description = "Test crack prints the best plaintext without prompting")
+    public void testCrack() {
+        String plaintext = "The quick brown fox jumps over the lazy dog while the farmer watches from the porch";
+        run(plaintext, "encrypt", "--shift", "7");
+        String encrypted = output();
+        out.reset();
+
+        Assert.assertEquals(run(encrypted, "crack"), CommandLine.OK);
+        Assert.assertEquals(output(), plaintext);
+
+        out.reset();
+        Assert.assertEquals(run(encrypted, "crack", "--top", "3"), CommandLine.OK);
+        Assert.assertTrue(output().startsWith("7\tenglish\t"), output());
+        Assert.assertEquals(output().lines().count(), 3);
+    }
+
+    @Test(description = "Test crack settles a tweet-sized text by dictionary words")
+    public void testCrackShortText() {
+        Assert.assertEquals(run("Khoor Zruog", "crack"), CommandLine.OK);
+        Assert.assertEquals(output(), "Hello World");
+
+        out.reset();
+        run("Meet me at noon by the old bridge", "encrypt", "--shift", "5");
+        String encrypted = output();
+        out.reset();
+        Assert.assertEquals(run(encrypted, "crack"), CommandLine.OK);
+        Assert.assertEquals(output(), "Meet me at noon by the old bridge");
+        Assert.assertTrue(err.toString(StandardCharsets.UTF_8).contains("Shift 5 (english"));
+    }
+
+    @Test(description = "Test eval reports each expression and fails on any error")
+    public void testEval() {
+        Assert.assertEquals(run("", "eval", "1 + 2", "2 * (3 + 4)"), CommandLine.OK);
+        Assert.assertEquals(output().lines().toArray(), new String[] {"3.0", "14.0"});
+
+        out.reset();
+        Assert.assertEquals(run("", "eval", "1 / 0", "5"), CommandLine.FAILED);
+        Assert.assertEquals(output().lines().toArray(), new String[] {"5.0"});
+        Assert.assertTrue(err.toString(StandardCharsets.UTF_8).contains("Division by zero"));
+    }
+
+    @Test(description = "Test batch reads stdin and writes results in order")
+    public void testBatch() {
+        Assert.assertEquals(run("1+1\n2*3\n", "batch", "--threads", "2"), CommandLine.OK);
+        Assert.assertEquals(output(), "2.0\n6.0\n");
+
+        out.reset();
+        Assert.assertEquals(run("1+1\n(2\n", "batch"), CommandLine.FAILED);
+        Assert.assertEquals(output(), "2.0\nerror: Missing closing parenthesis\n");
+    }
+
+    @Test(description = "Test usage errors")
+    public void testUsageErrors() {
+        Assert.assertEquals(run(""), CommandLine.USAGE);
+        Assert.assertEquals(run("", "rot13"), CommandLine.USAGE);
+        Assert.assertEquals(run("abc", "encrypt"), CommandLine.USAGE);
+        Assert.assertEquals(run("abc", "encrypt", "--shift", "x"), CommandLine.USAGE);
+        Assert.assertEquals(run("abc", "encrypt", "--level", "3"), CommandLine.USAGE);
+        Assert.assertTrue(err.toString(StandardCharsets.UTF_8).contains("Usage:"));
+    }
+
+    @Test(description = "Test missing input file")
+    public void testMissingFile() {
+        Assert.assertEquals(run("", "encrypt", "--shift", "1", "--in", "does/not/exist.txt"), CommandLine.IO_ERROR);
+    }
+}
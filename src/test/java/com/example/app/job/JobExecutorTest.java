@@ -0,0 +1,144 @@
+package com.example.app.job;
+
+import com.example.app.calculator.ArithmeticEvaluator;
+import com.example.app.cipher.CaesarCipher;
+import com.example.app.exception.CalculatorException;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class JobExecutorTest {
+    private JobExecutor executor;
+
+    @BeforeMethod
+    public void setUp() {
+        executor = new JobExecutor(new CaesarCipher(), new ArithmeticEvaluator(), 4, Map.of(JobType.FILE, 2));
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        executor.close();
+    }
+
+    @Test(description = "Test thousands of small jobs of mixed types")
+    public void testManySmallJobs() {
+        List<Job<String>> encrypted = new ArrayList<>();
+        List<Job<Double>> evaluated = new ArrayList<>();
+        for (int i = 0; i < 5_000; i++) {
+            encrypted.add(executor.encrypt("job " + i, 3));
+            evaluated.add(executor.eval(i + " * 2"));
+        }
+        for (int i = 0; i < 5_000; i++) {
+            Assert.assertEquals(encrypted.get(i).result().join(), "mre " + i);
+            Assert.assertEquals(evaluated.get(i).result().join(), i * 2.0);
+        }
+    }
+
+    @Test(description = "Test failures complete the job exceptionally")
+    public void testFailure() {
+        Job<Double> job = executor.eval("1 / 0");
+        CompletionException e = Assert.expectThrows(CompletionException.class, () -> job.result().join());
+        Assert.assertTrue(e.getCause() instanceof CalculatorException);
+    }
+
+    @Test(description = "Test file jobs")
+    public void testFileJobs() throws Exception {
+        Path in = Files.createTempFile("job", ".txt");
+        Path out = Files.createTempFile("job", ".enc");
+        try {
+            Files.writeString(in, "Hello", StandardCharsets.UTF_8);
+            Assert.assertEquals(executor.encryptFromFile(in.toString(), 1).result().join(), "Ifmmp");
+            Assert.assertEquals(executor.encryptFile(in, out, 2).result().join(), out);
+            Assert.assertEquals(Files.readString(out, StandardCharsets.UTF_8), "Jgnnq");
+        } finally {
+            Files.deleteIfExists(in);
+            Files.deleteIfExists(out);
+        }
+    }
+
+    @Test(description = "Test the per-type concurrency limit")
+    public void testConcurrencyLimit() {
+        AtomicInteger current = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+        List<Job<Integer>> jobs = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            jobs.add(executor.submit(JobType.FILE, () -> {
+                peak.accumulateAndGet(current.incrementAndGet(), Math::max);
+                Thread.sleep(10);
+                current.decrementAndGet();
+                return 1;
+            }, null));
+        }
+        jobs.forEach(job -> job.result().join());
+        Assert.assertEquals(peak.get(), 2);
+        // a slot is released just after its job's result completes
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (executor.running(JobType.FILE) > 0 && System.nanoTime() < deadline) {
+            Thread.yield();
+        }
+        Assert.assertEquals(executor.running(JobType.FILE), 0);
+    }
+
+    @Test(description = "Test timeouts interrupt the running job and free its slot")
+    public void testTimeout() throws Exception {
+        CountDownLatch interrupted = new CountDownLatch(2);
+        List<Job<Object>> jobs = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            jobs.add(executor.submit(JobType.FILE, () -> {
+                try {
+                    Thread.sleep(60_000);
+                } catch (InterruptedException e) {
+                    interrupted.countDown();
+                }
+                return null;
+            }, Duration.ofMillis(50)));
+        }
+        for (Job<Object> job : jobs) {
+            CompletionException e = Assert.expectThrows(CompletionException.class, () -> job.result().join());
+            Assert.assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        Assert.assertTrue(interrupted.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(executor.submit(JobType.FILE, () -> "next", null).result().get(5, TimeUnit.SECONDS), "next");
+    }
+
+    @Test(description = "Test cancelling queued and running jobs")
+    public void testCancel() throws Exception {
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Job<String>> blockers = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            blockers.add(executor.submit(JobType.FILE, () -> {
+                started.countDown();
+                release.await();
+                return "done";
+            }, null));
+        }
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+        AtomicInteger ran = new AtomicInteger();
+        Job<Integer> queued = executor.submit(JobType.FILE, ran::incrementAndGet, null);
+        Assert.assertEquals(executor.queued(JobType.FILE), 1);
+
+        Assert.assertTrue(queued.cancel());
+        Assert.assertTrue(blockers.get(0).cancel());
+        Assert.expectThrows(CancellationException.class, () -> blockers.get(0).result().join());
+        release.countDown();
+        Assert.assertEquals(blockers.get(1).result().get(5, TimeUnit.SECONDS), "done");
+        Assert.assertEquals(executor.submit(JobType.FILE, () -> "after", null).result().get(5, TimeUnit.SECONDS), "after");
+        Assert.assertEquals(ran.get(), 0);
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.app.metrics;
+
+import com.example.app.calculator.ArithmeticEvaluator;
+import com.example.app.cipher.CaesarCipher;
+import com.example.app.exception.CalculatorException;
+import com.example.app.exception.CipherException;
+import com.example.app.util.LatencyHistogram;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+// Metrics are process-wide and other tests record too, so only differences are checked.
+public class MetricsTest {
+
+    @Test(description = "Test cipher calls are counted with their input size and errors")
+    public void testCipherMetrics() {
+        CaesarCipher cipher = new CaesarCipher();
+        OperationMetrics encrypt = Metrics.operation("cipher.encrypt");
+        long calls = encrypt.getCalls();
+        long chars = encrypt.getChars();
+        long errors = encrypt.getErrors();
+        long cipherErrors = encrypt.getErrorsByType().getOrDefault("CipherException", 0L);
+
+        cipher.encrypt("Hello World", 3);
+        cipher.encrypt("Привет", 5);
+        Assert.assertThrows(CipherException.class, () -> cipher.encrypt("", 3));
+
+        Assert.assertTrue(encrypt.getCalls() >= calls + 3);
+        Assert.assertTrue(encrypt.getChars() >= chars + 17);
+        Assert.assertTrue(encrypt.getErrors() >= errors + 1);
+        Assert.assertTrue(encrypt.getErrorsByType().get("CipherException") >= cipherErrors + 1);
+    }
+
+    @Test(description = "Test evaluator errors are counted by exception type")
+    public void testEvaluatorMetrics() {
+        ArithmeticEvaluator evaluator = new ArithmeticEvaluator();
+        OperationMetrics evaluate = Metrics.operation("calculator.evaluate");
+        long calls = evaluate.getCalls();
+        long calculatorErrors = evaluate.getErrorsByType().getOrDefault("CalculatorException", 0L);
+
+        Assert.assertEquals(evaluator.evaluate("2 + 3 * 4"), 14.0);
+        Assert.assertThrows(CalculatorException.class, () -> evaluator.evaluate("2 +"));
+
+        Assert.assertTrue(evaluate.getCalls() >= calls + 2);
+        Assert.assertTrue(evaluate.getErrorsByType().get("CalculatorException") >= calculatorErrors + 1);
+    }
+
+    @Test(description = "Test recording from many threads loses nothing")
+    public void testConcurrentRecording() throws InterruptedException {
+        OperationMetrics metrics = Metrics.operation("test.concurrent");
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 10_000; i++) {
+                    metrics.success(metrics.start(), 10);
+                }
+            }));
+        }
+        threads.forEach(Thread::start);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        Assert.assertEquals(metrics.getCalls(), 80_000);
+        Assert.assertEquals(metrics.getChars(), 800_000);
+        LatencyHistogram latency = metrics.latency();
+        // about one in sampleInterval() calls is timed
+        long expected = 80_000 / Metrics.sampleInterval();
+        Assert.assertTrue(Math.abs(latency.count() - expected) < expected / 5 + 10, "timed " + latency.count());
+        Assert.assertTrue(latency.percentile(50) <= latency.percentile(99));
+        Assert.assertTrue(latency.percentile(99) <= latency.max());
+    }
+
+    @Test(description = "Test operations are published over JMX")
+    public void testMBeans() throws Exception {
+        Metrics.registerMBeans();
+        new CaesarCipher().decrypt("Khoor", 3);
+        Metrics.operation("test.late").success(OperationMetrics.NOT_TIMED, 1);
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        Assert.assertTrue((Long) server.getAttribute(Metrics.objectName("cipher.decrypt"), "Calls") > 0);
+        Assert.assertEquals(server.getAttribute(Metrics.objectName("test.late"), "Chars"), 1L);
+        Assert.assertTrue(server.queryNames(new ObjectName("com.example.app:type=Operation,*"), null).size() >= 2);
+    }
+
+    @Test(description = "Test the text dump")
+    public void testDump() {
+        new CaesarCipher().encrypt("Hello", 1);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        Metrics.dump(new PrintStream(bytes, true, StandardCharsets.UTF_8));
+        String dump = bytes.toString(StandardCharsets.UTF_8);
+        Assert.assertTrue(dump.startsWith("Latency sampled"), dump);
+        Assert.assertTrue(dump.contains("cipher.encrypt"), dump);
+    }
+}
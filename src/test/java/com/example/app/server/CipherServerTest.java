@@ -0,0 +1,103 @@
+package com.example.app.server;
+
+import com.example.app.calculator.ArithmeticEvaluator;
+import com.example.app.cipher.CaesarCipher;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+public class CipherServerTest {
+    private CipherServer server;
+    private HttpClient client;
+
+    @BeforeClass
+    public void setUp() throws IOException {
+        server = new CipherServer(new CaesarCipher(), new ArithmeticEvaluator(), 0, 64).start();
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @AfterClass
+    public void tearDown() {
+        server.close();
+    }
+
+    private HttpResponse<String> post(String path, String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + server.port() + path))
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    @Test(description = "Test encrypt, decrypt and eval endpoints")
+    public void testEndpoints() throws Exception {
+        HttpResponse<String> encrypted = post("/encrypt", "{\"text\": \"Hello, \\\"Мир\\\"\", \"shift\": 3}");
+        Assert.assertEquals(encrypted.statusCode(), 200);
+        Assert.assertEquals(encrypted.body(), "{\"result\":\"Khoor, \\\"Плу\\\"\"}");
+
+        HttpResponse<String> decrypted = post("/decrypt", "{\"text\": \"Khoor\", \"shift\": 3}");
+        Assert.assertEquals(decrypted.body(), "{\"result\":\"Hello\"}");
+
+        HttpResponse<String> evaluated = post("/eval", "{\"expression\": \"(1 + 2) * 3\"}");
+        Assert.assertEquals(evaluated.body(), "{\"result\":9.0}");
+    }
+
+    @Test(description = "Test crack endpoint")
+    public void testCrack() throws Exception {
+        CaesarCipher cipher = new CaesarCipher();
+        String encrypted = cipher.encrypt("The quick brown fox jumps over the lazy dog near the river bank", 11);
+        HttpResponse<String> response = post("/crack", "{\"text\": \"" + encrypted + "\", \"top\": 2}");
+        Assert.assertEquals(response.statusCode(), 200);
+        Assert.assertTrue(response.body().startsWith("{\"shift\":11,\"alphabet\":\"english\",\"plaintext\":\"The quick"),
+                response.body());
+    }
+
+    @Test(description = "Test crack endpoint settles a tweet-sized text by dictionary words")
+    public void testCrackShortText() throws Exception {
+        HttpResponse<String> response = post("/crack", "{\"text\": \"Khoor Zruog\"}");
+        Assert.assertEquals(response.statusCode(), 200);
+        Assert.assertTrue(response.body().startsWith(
+                "{\"shift\":3,\"alphabet\":\"english\",\"plaintext\":\"Hello World\",\"method\":\"dictionary\""),
+                response.body());
+    }
+
+    @Test(description = "Test client errors")
+    public void testErrors() throws Exception {
+        Assert.assertEquals(post("/eval", "{\"expression\": \"1 / 0\"}").body(), "{\"error\":\"Division by zero\"}");
+        Assert.assertEquals(post("/eval", "{\"expression\": \"1 / 0\"}").statusCode(), 400);
+        Assert.assertEquals(post("/encrypt", "{\"text\": \"abc\"}").statusCode(), 400);
+        Assert.assertEquals(post("/encrypt", "not json").statusCode(), 400);
+        Assert.assertEquals(post("/missing", "{}").statusCode(), 404);
+
+        HttpRequest get = HttpRequest.newBuilder(URI.create("http://localhost:" + server.port() + "/eval")).build();
+        Assert.assertEquals(client.send(get, HttpResponse.BodyHandlers.ofString()).statusCode(), 405);
+    }
+
+    @Test(description = "Test pipelined requests on keep-alive connections")
+    public void testPipelinedLoad() throws IOException {
+        LoadTestResult result = new LoadTestClient(server.port())
+                .run("/eval", "{\"expression\": \"2 * (3 + 4)\"}", 4, 8, 500);
+        Assert.assertEquals(result.requests(), 2000);
+        Assert.assertEquals(result.ok() + result.rejected(), 2000, result.toString());
+        Assert.assertEquals(result.failed(), 0);
+    }
+
+    @Test(description = "Test requests beyond the in-flight limit are rejected with 429")
+    public void testBackpressure() throws IOException {
+        try (CipherServer small = new CipherServer(new CaesarCipher(), new ArithmeticEvaluator(), 0, 1).start()) {
+            String text = "abc ".repeat(1 << 18);
+            LoadTestResult result = new LoadTestClient(small.port())
+                    .run("/encrypt", "{\"text\": \"" + text + "\", \"shift\": 1}", 8, 2, 10);
+            Assert.assertEquals(result.ok() + result.rejected(), 80, result.toString());
+            Assert.assertTrue(result.ok() > 0, result.toString());
+            Assert.assertTrue(result.rejected() > 0, result.toString());
+            Assert.assertEquals(small.rejectedRequests(), result.rejected());
+        }
+    }
+}